@@ -1,8 +1,18 @@
 package com.mariia.javaapi.code;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mariia.javaapi.code.ir.EndpointIR;
 import com.mariia.javaapi.code.ir.ParamIR;
 import com.mariia.javaapi.code.JavaSecurityParser;
+import com.mariia.javaapi.code.nlp.NlpDescribeClient;
+import com.mariia.javaapi.code.nlp.NlpDescribeResult;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.uploads.ArtifactFiles;
+import com.mariia.javaapi.uploads.ProjectLocks;
+import io.swagger.v3.core.util.Json;
 import io.swagger.v3.core.util.Yaml;
 import io.swagger.v3.oas.models.Components;
 import io.swagger.v3.oas.models.OpenAPI;
@@ -17,16 +27,23 @@ import io.swagger.v3.oas.models.responses.ApiResponse;
 import io.swagger.v3.oas.models.responses.ApiResponses;
 import io.swagger.v3.oas.models.security.SecurityRequirement;
 import io.swagger.v3.oas.models.security.SecurityScheme;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.util.AntPathMatcher;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.*;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import java.util.regex.Pattern;
 
@@ -34,12 +51,33 @@ import java.util.regex.Pattern;
 @Service
 public class CodeToDocsService {
 
-    private final WebClient nlp;
+    private final NlpDescribeClient nlp;
+    private final ProjectAnalysisCache analysisCache;
+    //jedno wywołanie NLP na klaster podobnych endpointów (patrz EndpointClusters)
+    private final boolean clustering;
+    private final FairScheduler scheduler;
+    private final ProjectLocks locks;
+    //fan-out wywołań NLP na wątkach wirtualnych (ta sama flaga co wątki wirtualne Tomcata)
+    private final boolean virtualThreads;
     private final Duration timeout = Duration.ofSeconds(600);
+    //poniżej tego budżetu nie ma sensu pytać modelu – endpoint idzie ścieżką statyczną
+    private static final Duration MIN_NLP_BUDGET = Duration.ofSeconds(3);
+    //tryb progresywny: nie zapisuj pliku częściej niż co tyle
+    private static final Duration PROGRESSIVE_WRITE_INTERVAL = Duration.ofSeconds(2);
     private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
 
-    public CodeToDocsService(@Qualifier("nlpClient") WebClient nlp) {
+    public CodeToDocsService(NlpDescribeClient nlp,
+                             ProjectAnalysisCache analysisCache,
+                             @Value("${docs.nlp.clustering:true}") boolean clustering,
+                             FairScheduler scheduler,
+                             ProjectLocks locks,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.nlp = nlp;
+        this.analysisCache = analysisCache;
+        this.clustering = clustering;
+        this.scheduler = scheduler;
+        this.locks = locks;
+        this.virtualThreads = virtualThreads;
     }
 
     private static final List<Pattern> PLACEHOLDER_PATTERNS = List.of(
@@ -57,8 +95,87 @@ public class CodeToDocsService {
             Path outFile,
             Path projectRoot
     ) throws Exception {
+        return generateYamlFromCode(eps, projectName, level, outFile, projectRoot, GenerationOptions.defaults());
+    }
+
+    public Path generateYamlFromCode(
+            List<EndpointIR> eps,
+            String projectName,
+            String level,
+            Path outFile,
+            Path projectRoot,
+            GenerationOptions options
+    ) throws Exception {
+        BuiltSpec spec = buildSpec(eps, projectName, level, outFile, projectRoot, options);
+        return publishYaml(spec, outFile, options);
+    }
+
+    /**
+     * Specyfikacja wygenerowana w pamięci; YAML zapisuje się równolegle (yaml kończy się po zapisie).
+     * Model jest już kompletny i nikt go dalej nie modyfikuje – można go czytać równocześnie z zapisem.
+     */
+    public record GeneratedSpec(OpenAPI api, CompletableFuture<Path> yaml) {
+        /** Czeka na zapis YAML; błąd zapisu rzuca dalej jak wywołanie synchroniczne. */
+        public Path awaitYaml() throws Exception {
+            try {
+                return yaml.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception ex) throw ex;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Jak generateYamlFromCode, ale zwraca też model OpenAPI – dla PDF, żeby render nie czytał
+     * i nie parsował od nowa YAML-a, który właśnie zapisaliśmy. Końcowy zapis YAML (serializacja,
+     * atomowa podmiana, odciski) idzie na własny wątek wirtualny, równolegle z renderem u wywołującego.
+     * Nie na boundedElastic: wywołujący sam zwykle na nim działa (offload) i czeka w awaitYaml –
+     * przy wyczerpanej puli zapis stałby w jej kolejce za czekającymi na niego wątkami.
+     */
+    public GeneratedSpec generateSpecFromCode(
+            List<EndpointIR> eps,
+            String projectName,
+            String level,
+            Path outFile,
+            Path projectRoot,
+            GenerationOptions options
+    ) throws Exception {
+        BuiltSpec spec = buildSpec(eps, projectName, level, outFile, projectRoot, options);
+        CompletableFuture<Path> yaml = new CompletableFuture<>();
+        Thread.ofVirtual().name("docs-yaml-" + outFile.getFileName()).start(() -> {
+            try {
+                yaml.complete(publishYaml(spec, outFile, options));
+            } catch (Throwable t) {
+                yaml.completeExceptionally(t);
+            }
+        });
+        return new GeneratedSpec(spec.api(), yaml);
+    }
 
-        System.out.println("[from-code] level=" + level);
+    private record BuiltSpec(OpenAPI api, Map<String, String> fingerprints) {}
+
+    private Path publishYaml(BuiltSpec spec, Path outFile, GenerationOptions options) throws Exception {
+        writeSpec(spec.api(), outFile, spec.fingerprints());
+        options.emit("yaml", mapOf(
+                "file", outFile.getFileName().toString(),
+                "bytes", Files.size(outFile),
+                "json", jsonSibling(outFile).getFileName().toString()));
+        return outFile;
+    }
+
+    private BuiltSpec buildSpec(
+            List<EndpointIR> eps,
+            String projectName,
+            String level,
+            Path outFile,
+            Path projectRoot,
+            GenerationOptions options
+    ) throws Exception {
+
+        System.out.println("[from-code] level=" + level
+                + (options.staticOnly ? " mode=static" : "")
+                + (options.deadline != null ? " deadline=" + options.deadline : ""));
 
         OpenAPI api = new OpenAPI();
         Info info = new Info()
@@ -83,20 +200,17 @@ public class CodeToDocsService {
 
         //ensureApiErrorComponent(api);//на кінці
 
-        // DTOs
-        Path projectPath = projectRoot;
-        System.out.println("[DTO] użyty katalog do skanowania: " + projectPath);
-        try {
-            JavaDtoParser dtoParser = new JavaDtoParser();
-            Map<String, Schema> dtoSchemas = dtoParser.parseDtos(projectPath);
-            if (!dtoSchemas.isEmpty()) {
-                api.getComponents().getSchemas().putAll(dtoSchemas);
-                System.out.println("[DTO] dodano do components/schemas: " + dtoSchemas.keySet());
-            } else {
-                System.out.println("[DTO] nie znaleziono żadnych DTO – components/schemas będzie puste.");
-            }
-        } catch (Exception e) {
-            System.err.println("[WARN] Pomijam parsowanie DTO: " + e.getMessage());
+        // DTOs + security – z analizy projektu (wspólnej z kontrolerem i generowaniem spekulatywnym)
+        ProjectAnalysisCache.Analysis analysis = analysisCache.analyze(projectRoot);
+        //katalog projektu = id uploadu; klucz kolejki round-robin w FairScheduler
+        String project = projectRoot.getFileName().toString();
+        //własna kopia – schematy z cache analizy są współdzielone z równoległymi przebiegami
+        Map<String, Schema> dtoSchemas = analysis.dtoSchemasCopy();
+        if (!dtoSchemas.isEmpty()) {
+            api.getComponents().getSchemas().putAll(dtoSchemas);
+            System.out.println("[DTO] dodano do components/schemas: " + dtoSchemas.keySet());
+        } else {
+            System.out.println("[DTO] nie znaleziono żadnych DTO – components/schemas będzie puste.");
         }
 
         // Przykładowy hack pod CreateUserRequest: dopilnuj wymaganych pól
@@ -109,93 +223,401 @@ public class CodeToDocsService {
             os.setRequired(new ArrayList<>(req));
         }
 
-        JavaSecurityParser securityParser = new JavaSecurityParser();
-        JavaSecurityParser.SecurityModel securityModel = null;
-        try {
-            securityModel = securityParser.parseSecurity(projectPath);
-        } catch (Exception e) {
-            System.err.println("[SEC] Błąd parsowania security: " + e.getMessage());
-        }
+        JavaSecurityParser.SecurityModel securityModel = analysis.security();
+        options.emit("analysis", mapOf(
+                "endpoints", eps.size(),
+                "dtos", dtoSchemas.size(),
+                "auth", securityModel == null ? null : String.valueOf(securityModel.authMechanism())));
         applySecurityFromModel(api, securityModel);
-        // Endpointy
-        for (EndpointIR ep : eps) {
+        // Generowanie przyrostowe: endpointy, których odcisk się nie zmienił,
+        // bierzemy z poprzedniej specyfikacji (bez NLP).
+        // Odciski i specyfikacja to para plików – czytamy je pod blokadą odczytu projektu,
+        // żeby nie trafić między podmianą jednego a drugiego (patrz writeSpec).
+        Path specDir = outFile.toAbsolutePath().getParent();
+        PreviousSpec prev = locks.read(specDir, () -> {
+            Map<String, String> fp = EndpointFingerprints.load(outFile);
+            return new PreviousSpec(fp, fp.isEmpty() ? null : readPreviousSpec(outFile));
+        });
+        Map<String, String> prevFingerprints = prev.fingerprints();
+        OpenAPI previous = prev.spec();
+        // model/prompty NLP z /healthz; gdy NLP jest nieosiągalne (i nie znamy ich z wcześniejszego
+        // zapytania), bierzemy konfigurację z poprzednich odcisków – opisy AI nie przepadną przez awarię
+        String describeProfile = nlp.profile();
+        if (describeProfile == null) {
+            describeProfile = prevFingerprints.getOrDefault(EndpointFingerprints.PROFILE_KEY, "?");
+        }
+        EndpointFingerprints fingerprints = new EndpointFingerprints(api.getComponents().getSchemas(), describeProfile);
+        Map<String, String> nextFingerprints = new LinkedHashMap<>();
+        nextFingerprints.put(EndpointFingerprints.PROFILE_KEY, describeProfile);
+
+        int n = eps.size();
+        boolean[] publicFlags = new boolean[n];
+        String[] fps = new String[n];
+        io.swagger.v3.oas.models.Operation[] reused = new io.swagger.v3.oas.models.Operation[n];
+        int toDescribe = 0;
+        for (int i = 0; i < n; i++) {
+            EndpointIR ep = eps.get(i);
+            publicFlags[i] = isPublicEndpoint(ep, securityModel);
+            fps[i] = fingerprints.of(ep, level, publicFlags[i]);
+            if (fps[i].equals(prevFingerprints.get(EndpointFingerprints.key(ep)))) {
+                reused[i] = previousOperation(previous, ep);
+            }
+            if (reused[i] == null) toDescribe++;
+        }
+        //$ref-y tych operacji są w znaczeniu poprzedniej specyfikacji (SchemaCanonicalizer je sprawdza)
+        Set<io.swagger.v3.oas.models.Operation> reusedOps = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (io.swagger.v3.oas.models.Operation op : reused) {
+            if (op != null) reusedOps.add(op);
+        }
+        if (previous != null) {
+            System.out.println("[INCR] bez zmian: " + (n - toDescribe) + "/" + n + " endpointów");
+        }
 
-            PathItem pi = api.getPaths().get(ep.path);
-            if (pi == null) {
-                pi = new PathItem();
-                api.getPaths().addPathItem(ep.path, pi);
+        // Klastry: endpoint podobny do wcześniejszego dostaje jego opis z podmienionymi nazwami
+        boolean[] needsNlp = new boolean[n];
+        for (int i = 0; i < n; i++) needsNlp[i] = reused[i] == null;
+        EndpointClusters clusters = (clustering && !options.staticOnly)
+                ? EndpointClusters.of(eps, needsNlp)
+                : EndpointClusters.of(eps, new boolean[n]);
+        if (clusters.savedCalls() > 0) {
+            toDescribe -= clusters.savedCalls();
+            System.out.println("[CLUSTER] klastrów: " + clusters.clusterCount()
+                    + ", wywołań NLP mniej o " + clusters.savedCalls());
+        }
+        NlpDescribeResult[] described = new NlpDescribeResult[n];
+        options.emit("plan", mapOf(
+                "total", n,
+                "reused", n - toDescribe - clusters.savedCalls(),
+                "clustered", clusters.savedCalls(),
+                "nlpCalls", options.staticOnly ? 0 : toDescribe));
+
+        // Tryb progresywny: najpierw kompletna specyfikacja (poprzednie opisy AI albo
+        // wersja statyczna), potem podmieniamy operacje w miarę napływu odpowiedzi z NLP
+        if (options.progressive) {
+            for (int i = 0; i < n; i++) {
+                io.swagger.v3.oas.models.Operation placeholder = (reused[i] != null)
+                        ? reused[i]
+                        : buildOperation(api, eps.get(i), publicFlags[i], audience, new NlpDescribeResult());
+                attachOperation(api, eps.get(i), placeholder);
+                if (reused[i] != null) nextFingerprints.put(EndpointFingerprints.key(eps.get(i)), fps[i]);
             }
+            SchemaCanonicalizer.canonicalize(api, previous, reusedOps);
+            writeSpec(api, outFile, nextFingerprints);
+        }
+        long lastWrite = System.nanoTime();
+
+        // Fan-out (spring.threads.virtual.enabled=true): wszystkie wywołania NLP startują od razu,
+        // każde na własnym wątku wirtualnym – faktyczną równoległość wyznaczają sloty FairScheduler.
+        // Pętla niżej zbiera wyniki po kolei (fan-in), więc zdarzenia, klastry i zapis progresywny
+        // działają jak w trybie sekwencyjnym. Członkowie klastrów czekają na reprezentanta.
+        AtomicInteger outstanding = new AtomicInteger(toDescribe);
+        Map<Integer, Future<NlpCall>> pending = new HashMap<>();
+        ExecutorService fanOut = (virtualThreads && !options.staticOnly)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : null;
+        try {
+            if (fanOut != null) {
+                for (int i = 0; i < n; i++) {
+                    if (reused[i] != null || clusters.representativeOf(i) >= 0) continue;
+                    EndpointIR ep = eps.get(i);
+                    pending.put(i, fanOut.submit(() -> describeScheduled(ep, level, project, options, outstanding)));
+                }
+            }
+
+            // Endpointy
+            for (int i = 0; i < n; i++) {
+                EndpointIR ep = eps.get(i);
+
+                long t0 = System.nanoTime();
+                long queuedMs = 0;
+                String source;
+                io.swagger.v3.oas.models.Operation op = reused[i];
+                if (op != null) {
+                    source = "reused";
+                    nextFingerprints.put(EndpointFingerprints.key(ep), fps[i]);
+                } else {
+                    NlpDescribeResult nlpRes;
+                    int rep = clusters.representativeOf(i);
+                    if (rep >= 0 && hasAiContent(described[rep])) {
+                        source = "cluster";
+                        nlpRes = EndpointClusters.fill(described[rep], eps.get(rep), ep);
+                    } else if (options.staticOnly) {
+                        // mode=static – opis wyłącznie z IR i fallbacków
+                        source = "static";
+                        nlpRes = new NlpDescribeResult();
+                    } else {
+                        // NLP /describe – AI (ollama), o ile starcza budżetu czasu
+                        Future<NlpCall> started = pending.get(i);
+                        NlpCall call = (started != null)
+                                ? joinNlp(started)
+                                : describeScheduled(ep, level, project, options, outstanding);
+                        nlpRes = call.result();
+                        queuedMs = call.queuedMs();
+                        source = hasAiContent(nlpRes) ? "ai" : "static";
+                    }
 
-            io.swagger.v3.oas.models.Operation op = new io.swagger.v3.oas.models.Operation();
-            op.setOperationId(ep.operationId);
+                    described[i] = nlpRes;
+                    op = buildOperation(api, ep, publicFlags[i], audience, nlpRes);
 
-            Map<String, Object> opExt = new LinkedHashMap<>();
+                    // odcisk zapisujemy tylko dla opisów z AI – statyczne fallbacki
+                    // zostaną ponowione przy następnym generowaniu
+                    if (hasAiContent(nlpRes)) {
+                        nextFingerprints.put(EndpointFingerprints.key(ep), fps[i]);
+                    }
+                }
+
+                attachOperation(api, ep, op);
+                if (options.hasListeners()) {
+                    options.emit("endpoint", mapOf(
+                            "index", i + 1,
+                            "total", n,
+                            "endpoint", EndpointFingerprints.key(ep),
+                            "operationId", op.getOperationId(),
+                            "source", source,
+                            "ms", (System.nanoTime() - t0) / 1_000_000,
+                            "queuedMs", queuedMs));
+                }
 
-            boolean isPublic = isPublicEndpoint(ep, securityModel);
-            if (isPublic) {
-                  // endpoint naprawdę jest publiczny wg Spring Security
-                 op.setSecurity(Collections.emptyList());
-                 opExt.put("x-security", "public");
-             } else {
-                 opExt.put("x-security", "secured");
-                 // autoryzacja jest z globalnego api.getSecurity()
+                if (options.progressive && op != reused[i]
+                        && System.nanoTime() - lastWrite >= PROGRESSIVE_WRITE_INTERVAL.toNanos()) {
+                    SchemaCanonicalizer.canonicalize(api, previous, reusedOps);
+                    writeSpec(api, outFile, nextFingerprints);
+                    lastWrite = System.nanoTime();
+                }
             }
 
-                opExt.put("x-user-level", audience);
-                op.setExtensions(opExt);
-
-
-            // NLP /describe – zawsze AI (ollama)
-            Map<String, Object> nlpRes = callNlp(buildNlpBody(ep), level);
-
-            applyParamsAndRequestBody(op, ep);//"Parametry"
-            applyAiDescriptionsAndExamples(op, ep, nlpRes);
-            ensureDefaultResponses(op, ep, nlpRes);////status 200/201 w tabeli opis-ok 
-            
-            //attachStandardErrors(op, isWriteMethod(ep.http));//wszystkie odpowiedzi errors od 400 do 404
-
-            // request/response/examples fallback
-            ensureRequestExample(api, op);//"Przyklad zadania"
-            ensureHappyResponseExample(api, op, ep);
-            ensureCurlExample(op, ep);//"Przykłady wywołań"
-            scrubPlaceholders(op, ep.path, String.valueOf(ep.http));
-
-            // podpięcie pod PathItem wg metody
-            switch (String.valueOf(ep.http).toUpperCase(Locale.ROOT)) {
-                case "GET"    -> pi.setGet(op);
-                case "POST"   -> pi.setPost(op);
-                case "PUT"    -> pi.setPut(op);
-                case "PATCH"  -> pi.setPatch(op);
-                case "DELETE" -> pi.setDelete(op);
-                default       -> pi.setGet(op);
+        } finally {
+            //po udanej pętli wszystko jest już zebrane; po błędzie przerywamy resztę i czekamy na nią
+            if (fanOut != null) {
+                fanOut.shutdownNow();
+                fanOut.close();
             }
         }
 
-        // zapis YAML
-        Files.createDirectories(outFile.getParent());
-        String yaml = Yaml.mapper().writeValueAsString(api);
-        Files.writeString(outFile, yaml);
+        // wbudowane schematy (Page<T>...) -> components/schemas + $ref; robione na końcu, bo buildOperation
+        // dobiera przykłady i opisy na podstawie wbudowanych schematów
+        int hoisted = SchemaCanonicalizer.canonicalize(api, previous, reusedOps);
+        if (hoisted > 0) {
+            System.out.println("[SCHEMA] wbudowane schematy wyniesione do components: " + hoisted);
+        }
+        return new BuiltSpec(api, nextFingerprints);
+    }
 
-        return outFile;
+    //Map.of nie przyjmuje null-i, a w zdarzeniach postępu bywają puste wartości
+    private static Map<String, Object> mapOf(Object... kv) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int k = 0; k + 1 < kv.length; k += 2) {
+            m.put((String) kv[k], kv[k + 1]);
+        }
+        return m;
     }
 
-    // NLP CALLS
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> callNlp(Map<String, Object> body, String level) {
+    private record PreviousSpec(Map<String, String> fingerprints, OpenAPI spec) {}
+
+    // zapis YAML + JSON (+ warianty .gz, odciski endpointów) z tego samego modelu: pliki pisane
+    // strumieniowo do plików tymczasowych i kompresowane poza blokadą, pod blokadą zapisu tylko
+    // atomowe podmiany – czytelnicy w ogóle nie czekają
+    private void writeSpec(OpenAPI api, Path outFile, Map<String, String> fingerprints) throws Exception {
+        Path jsonFile = jsonSibling(outFile);
+        try (ArtifactFiles.Staged yaml = ArtifactFiles.stage(outFile, out -> writeWith(Yaml.mapper(), api, out));
+             ArtifactFiles.Staged yamlGz = yaml.gzip();
+             ArtifactFiles.Staged json = ArtifactFiles.stage(jsonFile, out -> writeWith(Json.mapper(), api, out));
+             ArtifactFiles.Staged jsonGz = json.gzip()) {
+            locks.write(outFile.toAbsolutePath().getParent(), () -> {
+                yaml.publish();
+                yamlGz.publish();
+                json.publish();
+                jsonGz.publish();
+                EndpointFingerprints.save(outFile, fingerprints);
+                return null;
+            });
+        }
+    }
+
+    // generator z fabryki Yaml.mapper() / Json.mapper() pisze prosto do pliku: info, kolejne path itemy
+    // i components trafiają na dysk w trakcie serializacji, bez całego dokumentu jako String
+    // (i drugiej kopii w bajtach) – przy tysiącach operacji to kilka MB sterty mniej na zapis
+    private static void writeWith(ObjectMapper mapper, OpenAPI api, OutputStream out) throws IOException {
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            mapper.writeValue(gen, api);
+        }
+    }
+
+    //openapi_advanced.yaml -> openapi_advanced.json (dla narzędzi, którym JSON parsuje się szybciej)
+    private static Path jsonSibling(Path yaml) {
+        String name = yaml.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return yaml.resolveSibling(((dot > 0) ? name.substring(0, dot) : name) + ".json");
+    }
+
+    // podpięcie pod PathItem wg metody
+    private static void attachOperation(OpenAPI api, EndpointIR ep, io.swagger.v3.oas.models.Operation op) {
+        PathItem pi = api.getPaths().get(ep.path);
+        if (pi == null) {
+            pi = new PathItem();
+            api.getPaths().addPathItem(ep.path, pi);
+        }
+        switch (String.valueOf(ep.http).toUpperCase(Locale.ROOT)) {
+            case "GET"    -> pi.setGet(op);
+            case "POST"   -> pi.setPost(op);
+            case "PUT"    -> pi.setPut(op);
+            case "PATCH"  -> pi.setPatch(op);
+            case "DELETE" -> pi.setDelete(op);
+            default       -> pi.setGet(op);
+        }
+    }
+
+    //Jedna operacja OpenAPI z IR + (opcjonalnej) odpowiedzi NLP + fallbacków statycznych.
+    private io.swagger.v3.oas.models.Operation buildOperation(OpenAPI api,
+                                                             EndpointIR ep,
+                                                             boolean isPublic,
+                                                             String audience,
+                                                             NlpDescribeResult nlpRes) {
+        io.swagger.v3.oas.models.Operation op = new io.swagger.v3.oas.models.Operation();
+        op.setOperationId(ep.operationId);
+
+        Map<String, Object> opExt = new LinkedHashMap<>();
+
+        if (isPublic) {
+            // endpoint naprawdę jest publiczny wg Spring Security
+            op.setSecurity(Collections.emptyList());
+            opExt.put("x-security", "public");
+        } else {
+            opExt.put("x-security", "secured");
+            // autoryzacja jest z globalnego api.getSecurity()
+        }
+
+        opExt.put("x-user-level", audience);
+        op.setExtensions(opExt);
+
+        applyParamsAndRequestBody(op, ep);//"Parametry"
+        applyAiDescriptionsAndExamples(op, ep, nlpRes);
+        ensureDefaultResponses(op, ep, nlpRes);////status 200/201 w tabeli opis-ok 
+
+        //attachStandardErrors(op, isWriteMethod(ep.http));//wszystkie odpowiedzi errors od 400 do 404
+
+        // request/response/examples fallback
+        ensureRequestExample(api, op);//"Przyklad zadania"
+        ensureHappyResponseExample(api, op, ep);
+        ensureCurlExample(op, ep);//"Przykłady wywołań"
+        scrubPlaceholders(op, ep.path, String.valueOf(ep.http));
+        return op;
+    }
+
+    // INCREMENTAL
+    private static boolean hasAiContent(NlpDescribeResult nlpRes) {
+        return nlpRes != null && nlpRes.mediumDescription != null && !nlpRes.mediumDescription.isBlank();
+    }
+
+    //poprzednia wersja specyfikacji (bez rozwiązywania $ref – potrzebujemy tylko operacji)
+    private static OpenAPI readPreviousSpec(Path yaml) {
         try {
-            String audience = level;
-            String uri = "/describe?mode=ollama&audience=" + audience;
-            return nlp.post()
-                    .uri(uri)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(body)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block(timeout);
+            JsonNode tree = Yaml.mapper().readTree(yaml.toFile());
+            OpenAPI api = Yaml.mapper().treeToValue(tree, OpenAPI.class);
+            restoreMediaExamples(api, tree);
+            return api;
         } catch (Exception e) {
-            System.err.println("[NLP] Błąd połączenia z NLP: " + e.getMessage());
-            return Collections.emptyMap();
+            System.err.println("[INCR] Nie można odczytać poprzedniej specyfikacji: " + e.getMessage());
+            return null;
+        }
+    }
+
+    //Po odczycie schematy są typowane (StringSchema, BooleanSchema...), a MediaType.setExample
+    //rzutuje przykład na typ schematu (obiekt przy schemacie string staje się "{ok=true}").
+    //Przykłady bierzemy więc wprost z drzewa YAML i ustawiamy je bez schematu.
+    private static void restoreMediaExamples(OpenAPI api, JsonNode tree) {
+        if (api.getPaths() == null) return;
+        api.getPaths().forEach((path, pi) -> pi.readOperationsMap().forEach((method, op) -> {
+            JsonNode opNode = tree.path("paths").path(path)
+                    .path(method.name().toLowerCase(Locale.ROOT));
+            if (op.getRequestBody() != null) {
+                restoreExamples(op.getRequestBody().getContent(), opNode.path("requestBody").path("content"));
+            }
+            if (op.getResponses() != null) {
+                op.getResponses().forEach((code, r) ->
+                        restoreExamples(r.getContent(), opNode.path("responses").path(code).path("content")));
+            }
+        }));
+    }
+
+    private static void restoreExamples(Content content, JsonNode contentNode) {
+        if (content == null) return;
+        content.forEach((type, mt) -> {
+            JsonNode ex = contentNode.path(type).get("example");
+            if (ex == null) return;
+            Schema schema = mt.getSchema();
+            mt.setSchema(null);
+            mt.setExample(Json.mapper().convertValue(ex, Object.class));
+            mt.setSchema(schema);
+        });
+    }
+
+    private static io.swagger.v3.oas.models.Operation previousOperation(OpenAPI previous, EndpointIR ep) {
+        if (previous == null || previous.getPaths() == null) return null;
+        PathItem pi = previous.getPaths().get(ep.path);
+        if (pi == null) return null;
+        return switch (String.valueOf(ep.http).toUpperCase(Locale.ROOT)) {
+            case "POST"   -> pi.getPost();
+            case "PUT"    -> pi.getPut();
+            case "PATCH"  -> pi.getPatch();
+            case "DELETE" -> pi.getDelete();
+            default       -> pi.getGet();
+        };
+    }
+
+    // NLP CALLS
+
+    private record NlpCall(NlpDescribeResult result, long queuedMs) {}
+
+    //Wywołanie NLP przez FairScheduler: najpierw slot (w kolejce wg priorytetu i projektu),
+    //dopiero potem budżet – czas spędzony w kolejce zmniejsza to, co zostało do terminu.
+    //outstanding: ile wywołań jeszcze nie wystartowało (dzielimy między nie pozostały czas).
+    private NlpCall describeScheduled(EndpointIR ep, String level, String project,
+                                      GenerationOptions options, AtomicInteger outstanding) {
+        String key = EndpointFingerprints.key(ep);
+        Duration remaining = options.remaining();
+        Duration maxWait = (remaining == null) ? null : remaining.minus(MIN_NLP_BUDGET);
+        if (maxWait != null && maxWait.isNegative()) {
+            maxWait = Duration.ZERO;
         }
+        try (FairScheduler.Slot slot = scheduler.nlp().acquire(project, options.priority, maxWait,
+                position -> options.emit("queue", mapOf("stage", "nlp", "endpoint", key, "position", position)))) {
+            if (slot == null) {
+                System.out.println("[NLP] termin minął w kolejce – " + ep.operationId + " bez AI (fallback statyczny)");
+                outstanding.decrementAndGet();
+                return new NlpCall(new NlpDescribeResult(), 0);
+            }
+            Duration budget = nlpBudget(options, Math.max(1, outstanding.getAndDecrement()));
+            if (budget.compareTo(MIN_NLP_BUDGET) < 0) {
+                System.out.println("[NLP] budżet wyczerpany – " + ep.operationId + " bez AI (fallback statyczny)");
+                return new NlpCall(new NlpDescribeResult(), slot.waitedMs());
+            }
+            return new NlpCall(callNlp(buildNlpBody(ep), level, budget), slot.waitedMs());
+        }
+    }
+
+    private static NlpCall joinNlp(Future<NlpCall> started) throws Exception {
+        try {
+            return started.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception ex) throw ex;
+            throw e;
+        }
+    }
+
+    private NlpDescribeResult callNlp(Map<String, Object> body, String level, Duration budget) {
+        String audience = level;
+        return nlp.describe(body, audience, budget);
+    }
+
+    //Budżet na jedno wywołanie NLP: pozostały czas do terminu dzielony równo
+    //na endpointy, które jeszcze czekają (z limitem pojedynczego wywołania).
+    //Szybkie odpowiedzi zostawiają więcej czasu kolejnym endpointom.
+    private Duration nlpBudget(GenerationOptions options, int outstanding) {
+        Duration remaining = options.remaining();
+        if (remaining == null) return timeout;
+        Duration slice = remaining.dividedBy(Math.max(1, outstanding));
+        return slice.compareTo(timeout) < 0 ? slice : timeout;
     }
 
     ///zawiera wszystko, co endpoint o sobie wie (operationId, metoda, ścieżka, parametry, zwrotka, javadoc, notatki),
@@ -239,16 +661,15 @@ public class CodeToDocsService {
     //NLP generuje curl → ląduje w x-request-examples.
     //NLP generuje przykładową odpowiedź → ląduje w responses[status].content[*].example + schema.
     //Jeśli AI nic nie da w examples → później wchodzą fallbacki ensureRequestExample, ensureHappyResponseExample, ensureCurlExample.
-    @SuppressWarnings("unchecked")
     private void applyAiDescriptionsAndExamples(io.swagger.v3.oas.models.Operation op,
                                                 EndpointIR ep,
-                                                Map<String, Object> nlpRes) {
+                                                NlpDescribeResult nlpRes) {
         if (nlpRes == null) {
             return;
         }
 
         // 1) summary z NLP (krótkie)
-        String aiSummary = asStr(nlpRes.get("summary"));
+        String aiSummary = nlpRes.summary;
         if (aiSummary != null && !aiSummary.isBlank()) {
             String trimmed = trim(aiSummary.trim(), 200); // krótszy niż description
             if (op.getSummary() == null || op.getSummary().isBlank()) {
@@ -257,7 +678,7 @@ public class CodeToDocsService {
         }
 
         // 2) mediumDescription z NLP (dłuższe, bardziej szczegółowe)
-        String medD = asStr(nlpRes.get("mediumDescription"));
+        String medD = nlpRes.mediumDescription;
         if (medD != null && !medD.isBlank()) {
             String trimmed = medD.trim();
             if (op.getDescription() == null || op.getDescription().isBlank()) {
@@ -274,11 +695,10 @@ public class CodeToDocsService {
         }
 
         // 3) notes -> x-impl-notes (to zostaje jak było)
-        Object notesObj = nlpRes.get("notes");
-        if (notesObj instanceof List<?>) {
+        if (nlpRes.notes != null) {
             boolean alreadyHas = op.getExtensions()!=null && op.getExtensions().containsKey("x-impl-notes");
             if (!alreadyHas) {
-                List<String> implNotes = ((List<?>) notesObj).stream()
+                List<String> implNotes = nlpRes.notes.stream()
                         .map(x -> Objects.toString(x, ""))
                         .map(String::trim)
                         .filter(s -> !s.isBlank())
@@ -291,26 +711,17 @@ public class CodeToDocsService {
         }
         
         // examples
-        Object examplesObj = nlpRes.get("examples");
-        if (!(examplesObj instanceof Map<?, ?> exMap)) {
+        NlpDescribeResult.Examples ex = nlpRes.examples;
+        if (ex == null) {
             return;
         }
 
         // requests -> x-request-examples
-        Object reqsObj = exMap.get("requests");
-        if (reqsObj instanceof List<?>) {
+        if (ex.requests != null) {
             List<String> curls = new ArrayList<>();
-            for (Object r : (List<?>) reqsObj) {
-                if (r instanceof Map<?, ?>) {
-                    Object curl = ((Map<?, ?>) r).get("curl");
-                    if (curl != null && !curl.toString().isBlank()) {
-                        curls.add(normalizeCurl(curl.toString()));
-                    }
-                } else if (r instanceof String) {
-                    String curl = ((String) r).trim();
-                    if (!curl.isBlank()) {
-                        curls.add(normalizeCurl(curl));
-                    }
+            for (NlpDescribeResult.RequestExample r : ex.requests) {
+                if (r != null && r.curl != null && !r.curl.isBlank()) {
+                    curls.add(normalizeCurl(r.curl.trim()));
                 }
             }
             if (!curls.isEmpty()) {
@@ -323,17 +734,10 @@ public class CodeToDocsService {
         }
 
         // response example
-        Object respObj = exMap.get("response");
-        if (respObj instanceof Map<?, ?> rm) {
-            int status = 200;
-            Object st = rm.get("status");
-            if (st != null) {
-                try {
-                    status = Integer.parseInt(st.toString());
-                } catch (NumberFormatException ignore) {
-                }
-            }
-            Object bodyEx = rm.get("body");
+        NlpDescribeResult.ResponseExample rm = ex.response;
+        if (rm != null) {
+            int status = (rm.status != null) ? rm.status : 200;
+            Object bodyEx = rm.body;
 
             if (bodyEx != null || status == 204) {
                 ApiResponses rs = (op.getResponses() == null) ? new ApiResponses() : op.getResponses();
@@ -413,7 +817,7 @@ public class CodeToDocsService {
     //status 200/201 w tabeli opis-ok 
     private void ensureDefaultResponses(io.swagger.v3.oas.models.Operation op,
                                         EndpointIR ep,
-                                        Map<String, Object> nlpRes) {
+                                        NlpDescribeResult nlpRes) {
         if (op.getResponses() != null && !op.getResponses().isEmpty()) return;
 
         ApiResponses rs = new ApiResponses();
@@ -429,7 +833,7 @@ public class CodeToDocsService {
             rs.addApiResponse("204", new ApiResponse().description("No Content"));
         } else {
             ApiResponse ok = new ApiResponse();
-            String retDoc = asStr(nlpRes != null ? nlpRes.get("returnDoc") : null);
+            String retDoc = (nlpRes != null) ? nlpRes.returnDoc : null;
             ok.setDescription((retDoc != null && !retDoc.isBlank()) ? retDoc : "OK");
             ok.setContent(new Content().addMediaType(
                     MediaType.APPLICATION_JSON_VALUE,
@@ -786,11 +1190,13 @@ public class CodeToDocsService {
             ArraySchema content = new ArraySchema();
             content.setItems(inner);
             ObjectSchema page = new ObjectSchema();
-            page.addProperties("content", content);
-            page.addProperties("page", new IntegerSchema());
-            page.addProperties("size", new IntegerSchema());
-            page.addProperties("totalElements", new IntegerSchema());
-            page.addProperties("totalPages", new IntegerSchema());
+            page.addProperty("content", content);
+            page.addProperty("page", new IntegerSchema());
+            page.addProperty("size", new IntegerSchema());
+            page.addProperty("totalElements", new IntegerSchema());
+            page.addProperty("totalPages", new IntegerSchema());
+            page.addProperty("last", new BooleanSchema());
+            page.setName("Page«" + simpleName(stripGenerics(t)) + "»");
             return page;
         }
 
@@ -825,7 +1231,8 @@ public class CodeToDocsService {
     //"UserResponse[]" → ArraySchema(items=$ref: "#/components/schemas/UserResponse")
     //"Map<String, Order>" → MapSchema(additionalProperties=$ref: "#/components/schemas/Order")
     // "ResponseEntity<List<Product>>" → jak dla List<Product>
-    //"Page<Order>" → obiekt z polami content, page, size, totalElements, totalPages (patrz sekcja 2)
+    //"Page<Order>" → obiekt z polami content, page, size, totalElements, totalPages, last (jak w JavaDtoParser);
+    //               na końcu buildSpec SchemaCanonicalizer wynosi go do components jako "PageOrder", o ile występuje co najmniej dwa razy
     //"com.acme.api.dto.UserResponse" → $ref: "#/components/schemas/UserResponse"
 
     //wykorzystywane w schemaForType
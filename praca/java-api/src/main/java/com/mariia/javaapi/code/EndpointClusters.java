@@ -0,0 +1,312 @@
+package com.mariia.javaapi.code;
+
+import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.code.ir.ParamIR;
+import com.mariia.javaapi.code.nlp.NlpDescribeResult;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Grupowanie endpointów o tej samej budowie (typowy CRUD: GET /api/books/{id}, GET /api/users/{id}...).
+ * Sygnatura = metoda + kształt ścieżki (literał / zmienna) + rodzaje parametrów + kształt zwracanego typu.
+ * W klastrze ścieżki mogą się różnić tylko jednym literałem (nazwą zasobu).
+ * Do NLP idzie tylko pierwszy endpoint klastra, pozostali dostają jego opis
+ * z podmienionymi nazwami (ścieżka, zasób, operationId, parametry, typy).
+ *
+ * Klastrujemy wyłącznie endpointy bez własnej dokumentacji (javadoc, opisy, notatki) i bez
+ * DTO w żądaniu – inaczej wspólny opis zgubiłby to, co odróżnia konkretny endpoint.
+ */
+public class EndpointClusters {
+
+    private static final Pattern IDENT = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    private static final Set<String> NUMERIC = Set.of(
+            "int", "long", "short", "byte", "double", "float",
+            "Integer", "Long", "Short", "Byte", "Double", "Float", "BigDecimal", "BigInteger");
+    private static final Set<String> TEXT = Set.of("String", "UUID", "char", "Character", "CharSequence");
+    private static final Set<String> WRAPPERS = Set.of("ResponseEntity", "Optional", "Mono", "CompletableFuture");
+
+    //indeks endpointu -> indeks reprezentanta klastra (tylko dla członków, nie dla reprezentantów)
+    private final Map<Integer, Integer> representativeOf = new HashMap<>();
+    private int clusters;
+
+    private EndpointClusters() {
+    }
+
+    /**
+     * @param candidates które endpointy w ogóle wymagają opisu (np. nie wzięte z poprzedniej specyfikacji)
+     */
+    public static EndpointClusters of(List<EndpointIR> eps, boolean[] candidates) {
+        EndpointClusters result = new EndpointClusters();
+        Map<String, List<Cluster>> bySignature = new LinkedHashMap<>();
+
+        for (int i = 0; i < eps.size(); i++) {
+            EndpointIR ep = eps.get(i);
+            if (!candidates[i] || !isTemplatable(ep)) continue;
+
+            String[] segments = segments(ep.path);
+            List<Cluster> group = bySignature.computeIfAbsent(signature(ep, segments), k -> new ArrayList<>());
+            Cluster joined = null;
+            for (Cluster c : group) {
+                if (c.accepts(segments)) {
+                    joined = c;
+                    break;
+                }
+            }
+            if (joined == null) {
+                group.add(new Cluster(i, segments));
+            } else {
+                joined.add(segments);
+                result.representativeOf.put(i, joined.representative);
+            }
+        }
+        for (List<Cluster> group : bySignature.values()) {
+            for (Cluster c : group) {
+                if (c.size > 1) result.clusters++;
+            }
+        }
+        return result;
+    }
+
+    /** Indeks reprezentanta albo -1, jeśli endpoint sam idzie do NLP. */
+    public int representativeOf(int index) {
+        return representativeOf.getOrDefault(index, -1);
+    }
+
+    /** Ile wywołań NLP oszczędzamy. */
+    public int savedCalls() {
+        return representativeOf.size();
+    }
+
+    public int clusterCount() {
+        return clusters;
+    }
+
+    // SZABLON
+
+    /**
+     * Opis reprezentanta przepisany na członka klastra. Przykładowe body odpowiedzi nie jest
+     * przenoszone (dotyczy innego DTO) – uzupełni je fallback z schematu.
+     */
+    public static NlpDescribeResult fill(NlpDescribeResult template, EndpointIR rep, EndpointIR member) {
+        Map<String, String> subst = substitutions(rep, member);
+        NlpDescribeResult r = new NlpDescribeResult();
+        r.summary = apply(template.summary, subst);
+        r.shortDescription = apply(template.shortDescription, subst);
+        r.mediumDescription = apply(template.mediumDescription, subst);
+        r.longDescription = apply(template.longDescription, subst);
+        r.returnDoc = apply(template.returnDoc, subst);
+        if (template.paramDocs != null) {
+            for (NlpDescribeResult.ParamDoc pd : template.paramDocs) {
+                NlpDescribeResult.ParamDoc copy = new NlpDescribeResult.ParamDoc();
+                copy.name = apply(pd.name, subst);
+                copy.doc = apply(pd.doc, subst);
+                r.paramDocs.add(copy);
+            }
+        }
+        if (template.notes != null) {
+            r.notes = template.notes.stream().map(s -> apply(s, subst)).toList();
+        }
+        if (template.examples != null) {
+            r.examples = new NlpDescribeResult.Examples();
+            if (template.examples.requests != null) {
+                r.examples.requests = template.examples.requests.stream()
+                        .filter(Objects::nonNull)
+                        .map(q -> NlpDescribeResult.RequestExample.of(apply(q.curl, subst)))
+                        .toList();
+            }
+            if (template.examples.response != null) {
+                r.examples.response = new NlpDescribeResult.ResponseExample();
+                r.examples.response.status = template.examples.response.status;
+            }
+        }
+        return r;
+    }
+
+    private static Map<String, String> substitutions(EndpointIR rep, EndpointIR member) {
+        Map<String, String> m = new HashMap<>();
+        put(m, rep.path, member.path);
+        put(m, rep.operationId, member.operationId);
+
+        String[] a = segments(rep.path);
+        String[] b = segments(member.path);
+        for (int k = 0; k < a.length; k++) {
+            if (!a[k].equals(b[k]) && !isVariable(a[k])) {
+                putWordForms(m, a[k], b[k]);
+            }
+        }
+        for (int k = 0; k < rep.params.size(); k++) {
+            ParamIR pa = rep.params.get(k);
+            ParamIR pb = member.params.get(k);
+            put(m, pa.name, pb.name);
+            putTypeNames(m, pa.type, pb.type);
+        }
+        if (rep.returns != null && member.returns != null) {
+            putTypeNames(m, rep.returns.type, member.returns.type);
+        }
+        return m;
+    }
+
+    //books -> users, Books -> Users, book -> user, Book -> User
+    private static void putWordForms(Map<String, String> m, String from, String to) {
+        put(m, from, to);
+        put(m, capitalize(from), capitalize(to));
+        if (from.length() > 1 && to.length() > 1 && from.endsWith("s") && to.endsWith("s")) {
+            String f1 = from.substring(0, from.length() - 1);
+            String t1 = to.substring(0, to.length() - 1);
+            put(m, f1, t1);
+            put(m, capitalize(f1), capitalize(t1));
+        }
+    }
+
+    private static void putTypeNames(Map<String, String> m, String a, String b) {
+        List<String> ia = identifiers(a);
+        List<String> ib = identifiers(b);
+        for (int k = 0; k < Math.min(ia.size(), ib.size()); k++) {
+            put(m, ia.get(k), ib.get(k));
+        }
+    }
+
+    private static void put(Map<String, String> m, String from, String to) {
+        if (from == null || to == null || from.isBlank() || from.equals(to)) return;
+        m.putIfAbsent(from, to);
+    }
+
+    //jedno przejście, najdłuższe dopasowania najpierw, tylko całe słowa/ścieżki
+    private static String apply(String text, Map<String, String> subst) {
+        if (text == null || text.isEmpty() || subst.isEmpty()) return text;
+        List<String> keys = new ArrayList<>(subst.keySet());
+        keys.sort(Comparator.comparingInt(String::length).reversed());
+        StringBuilder alt = new StringBuilder();
+        for (String k : keys) {
+            if (alt.length() > 0) alt.append('|');
+            alt.append(Pattern.quote(k));
+        }
+        Pattern p = Pattern.compile("(?<![A-Za-z0-9_])(?:" + alt + ")(?![A-Za-z0-9_])");
+        Matcher mt = p.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (mt.find()) {
+            mt.appendReplacement(sb, Matcher.quoteReplacement(subst.get(mt.group())));
+        }
+        mt.appendTail(sb);
+        return sb.toString();
+    }
+
+    // SYGNATURA
+
+    private static boolean isTemplatable(EndpointIR ep) {
+        if (ep.path == null || ep.http == null) return false;
+        if (!isBlank(ep.javadoc) || !isBlank(ep.description) || !isBlank(ep.summary)) return false;
+        if (ep.notes != null && !ep.notes.isEmpty()) return false;
+        if (ep.todos != null && !ep.todos.isEmpty()) return false;
+        if (ep.params != null) {
+            for (ParamIR p : ep.params) {
+                //domyślny opis z parsera (defaultParamDoc) się nie liczy
+                if (p.descriptionFromJavadoc && !isBlank(p.description)) return false;
+                //ciało żądania niesie znaczenie (rejestracja użytkownika ≠ rejestracja cytatu)
+                if ("body".equalsIgnoreCase(p.in) || "dto".equals(typeKind(p.type))) return false;
+            }
+        }
+        return true;
+    }
+
+    private static String signature(EndpointIR ep, String[] segments) {
+        StringBuilder sb = new StringBuilder(ep.http.toUpperCase(Locale.ROOT)).append(' ');
+        for (String s : segments) {
+            sb.append('/').append(isVariable(s) ? "{}" : "_");
+        }
+        sb.append(" (");
+        if (ep.params != null) {
+            for (ParamIR p : ep.params) {
+                sb.append(p.in).append(':').append(typeKind(p.type)).append(p.required ? "!" : "?").append(',');
+            }
+        }
+        sb.append(") -> ").append(ep.returns == null ? "void" : typeKind(ep.returns.type));
+        return sb.toString();
+    }
+
+    //List<BookResponse> -> list<dto>, ResponseEntity<Long> -> num, Page<X> -> page<dto>
+    static String typeKind(String type) {
+        if (type == null || type.isBlank()) return "void";
+        String t = type.replaceAll("\\s+", "");
+        int lt = t.indexOf('<');
+        String raw = (lt < 0) ? t : t.substring(0, lt);
+        raw = raw.substring(raw.lastIndexOf('.') + 1);
+        int gt = t.lastIndexOf('>');
+        String inner = (lt < 0) ? null : t.substring(lt + 1, (gt > lt) ? gt : t.length());
+
+        if (WRAPPERS.contains(raw)) return inner == null ? "void" : typeKind(inner);
+        if (raw.equals("void") || raw.equals("Void")) return "void";
+        if (raw.endsWith("[]")) return "list<" + typeKind(raw.substring(0, raw.length() - 2)) + ">";
+        if (raw.equals("List") || raw.equals("Set") || raw.equals("Collection") || raw.equals("Iterable")) {
+            return "list<" + typeKind(inner) + ">";
+        }
+        if (raw.equals("Page") || raw.equals("Slice")) return "page<" + typeKind(inner) + ">";
+        if (raw.equals("Map")) return "map";
+        if (NUMERIC.contains(raw)) return "num";
+        if (TEXT.contains(raw)) return "str";
+        if (raw.equals("boolean") || raw.equals("Boolean")) return "bool";
+        if (raw.equals("MultipartFile")) return "file";
+        return "dto";
+    }
+
+    private static String[] segments(String path) {
+        return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.startsWith("{") && segment.endsWith("}");
+    }
+
+    private static List<String> identifiers(String type) {
+        List<String> out = new ArrayList<>();
+        if (type == null) return out;
+        Matcher m = IDENT.matcher(type);
+        while (m.find()) out.add(m.group());
+        return out;
+    }
+
+    private static String capitalize(String s) {
+        return s.isEmpty() ? s : Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    // klaster: ścieżki różnią się od reprezentanta dokładnie jednym literałem, zawsze na tej samej pozycji
+    private static final class Cluster {
+        final int representative;
+        final String[] repSegments;
+        int slot = -1;
+        int size = 1;
+
+        Cluster(int representative, String[] repSegments) {
+            this.representative = representative;
+            this.repSegments = repSegments;
+        }
+
+        boolean accepts(String[] segments) {
+            int diff = -1;
+            for (int k = 0; k < segments.length; k++) {
+                if (isVariable(segments[k]) || segments[k].equals(repSegments[k])) continue;
+                if (diff >= 0) return false;
+                diff = k;
+            }
+            return diff >= 0 && (slot < 0 || slot == diff);
+        }
+
+        void add(String[] segments) {
+            if (slot < 0) {
+                for (int k = 0; k < segments.length; k++) {
+                    if (!isVariable(segments[k]) && !segments[k].equals(repSegments[k])) {
+                        slot = k;
+                        break;
+                    }
+                }
+            }
+            size++;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.mariia.javaapi.code;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.code.ir.ParamIR;
+import com.mariia.javaapi.uploads.ArtifactFiles;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.media.Schema;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Odciski endpointów do generowania przyrostowego.
+ * Odcisk = SHA-256 z tego, co o endpoincie wie IR (czyli z tego, co trafia do NLP),
+ * poziomu, flagi public, konfiguracji opisów (model, parametry i wersja promptów NLP –
+ * NlpDescribeClient.profile) oraz hashy schematów DTO, do których endpoint się odwołuje
+ * (bezpośrednio i pośrednio przez $ref).
+ * Zapisywane obok openapi_{level}.yaml jako openapi_{level}.fingerprints.json; konfiguracja
+ * opisów leży tam też jawnie pod PROFILE_KEY.
+ */
+public class EndpointFingerprints {
+
+    //podbić przy zmianie sposobu budowania operacji – unieważnia wszystkie stare odciski
+    private static final String VERSION = "1";
+    private static final ObjectMapper JSON = Json.mapper();
+    private static final Pattern IDENT = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    private static final Pattern REF = Pattern.compile("#/components/schemas/([^\"/]+)");
+    //wpis z konfiguracją opisów w pliku odcisków (klucze endpointów to "METODA /ścieżka")
+    public static final String PROFILE_KEY = "#describe";
+
+    private final Map<String, Schema> schemas;
+    private final String describeProfile;
+    private final Map<String, String> schemaHashes = new HashMap<>();
+
+    public EndpointFingerprints(Map<String, Schema> schemas, String describeProfile) {
+        this.schemas = (schemas == null) ? Map.of() : schemas;
+        this.describeProfile = describeProfile;
+    }
+
+    public String describeProfile() {
+        return describeProfile;
+    }
+
+    /** "GET /api/books/{id}" – klucz operacji w pliku z odciskami. */
+    public static String key(EndpointIR ep) {
+        return String.valueOf(ep.http).toUpperCase(Locale.ROOT) + " " + ep.path;
+    }
+
+    public String of(EndpointIR ep, String level, boolean isPublic) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append(VERSION).append('\n')
+          .append(level).append('\n')
+          .append(isPublic).append('\n')
+          .append(describeProfile).append('\n')
+          .append(ep.http).append('\n')
+          .append(ep.path).append('\n')
+          .append(ep.operationId).append('\n')
+          .append(ep.summary).append('\n')
+          .append(ep.description).append('\n')
+          .append(ep.javadoc).append('\n')
+          .append(ep.notes).append('\n')
+          .append(ep.todos).append('\n');
+
+        Set<String> types = new LinkedHashSet<>();
+        if (ep.params != null) {
+            for (ParamIR p : ep.params) {
+                sb.append(p.name).append('|').append(p.in).append('|').append(p.type).append('|')
+                  .append(p.required).append('|').append(p.description).append('\n');
+                types.add(p.type);
+            }
+        }
+        if (ep.returns != null) {
+            sb.append("returns|").append(ep.returns.type).append('|').append(ep.returns.description).append('\n');
+            types.add(ep.returns.type);
+        }
+
+        //schematy użyte w sygnaturze + wszystko, do czego prowadzą ich $ref
+        Set<String> seen = new TreeSet<>();
+        Deque<String> todo = new ArrayDeque<>();
+        for (String t : types) {
+            if (t == null) continue;
+            Matcher m = IDENT.matcher(t);
+            while (m.find()) todo.add(m.group());
+        }
+        while (!todo.isEmpty()) {
+            String name = todo.pop();
+            if (!schemas.containsKey(name) || !seen.add(name)) continue;
+            String json = schemaJson(name);
+            Matcher m = REF.matcher(json);
+            while (m.find()) todo.add(m.group(1));
+        }
+        for (String name : seen) {
+            sb.append("schema|").append(name).append('|').append(schemaHash(name)).append('\n');
+        }
+        return sha256(sb.toString());
+    }
+
+    private String schemaHash(String name) {
+        return schemaHashes.computeIfAbsent(name, n -> sha256(schemaJson(n)));
+    }
+
+    private String schemaJson(String name) {
+        try {
+            return JSON.writeValueAsString(schemas.get(name));
+        } catch (IOException e) {
+            return String.valueOf(schemas.get(name));
+        }
+    }
+
+    // ZAPIS / ODCZYT
+
+    /** openapi_advanced.yaml -> openapi_advanced.fingerprints.json */
+    public static Path fileFor(Path yaml) {
+        String name = yaml.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = (dot > 0) ? name.substring(0, dot) : name;
+        return yaml.resolveSibling(base + ".fingerprints.json");
+    }
+
+    public static Map<String, String> load(Path yaml) {
+        Path file = fileFor(yaml);
+        if (!Files.exists(file) || !Files.exists(yaml)) return Map.of();
+        try {
+            return JSON.readValue(file.toFile(), new TypeReference<LinkedHashMap<String, String>>() {});
+        } catch (IOException e) {
+            System.err.println("[INCR] Nie można odczytać odcisków " + file + ": " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    public static void save(Path yaml, Map<String, String> fingerprints) throws IOException {
+        ArtifactFiles.writeString(fileFor(yaml), JSON.writeValueAsString(fingerprints));
+    }
+
+    private static String sha256(String s) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(d);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
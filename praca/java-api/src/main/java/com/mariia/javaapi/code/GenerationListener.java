@@ -0,0 +1,13 @@
+package com.mariia.javaapi.code;
+
+import java.util.Map;
+
+/**
+ * Zdarzenia postępu generowania (etapy + kolejne endpointy), np. do strumienia SSE zadania.
+ * Wywoływane w wątku generowania – implementacja nie powinna blokować.
+ */
+@FunctionalInterface
+public interface GenerationListener {
+
+    void onEvent(String type, Map<String, Object> data);
+}
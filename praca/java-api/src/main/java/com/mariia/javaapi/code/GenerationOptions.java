@@ -0,0 +1,75 @@
+package com.mariia.javaapi.code;
+
+import com.mariia.javaapi.jobs.Priority;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Ustawienia pojedynczego przebiegu generateYamlFromCode, podawane przez wywołującego.
+ */
+public class GenerationOptions {
+
+    //twardy termin całego przebiegu (wszystkie endpointy); null = bez limitu
+    public Instant deadline;
+
+    //mode=static: bez wywołań NLP – IR, DTO, security i syntetyczne przykłady
+    public boolean staticOnly;
+
+    //zapisuj specyfikację w trakcie (po kolejnych opisach z AI), a nie tylko na końcu;
+    //endpointy jeszcze nieopisane mają w pliku wersję statyczną
+    public boolean progressive;
+
+    //klasa priorytetu w FairScheduler (sloty NLP); podgląd inline > pobieranie > praca w tle;
+    //może wzrosnąć w trakcie, gdy do przebiegu dołączy pilniejsze żądanie (join)
+    public volatile Priority priority = Priority.DOWNLOAD;
+
+    //odbiorca zdarzeń postępu; null = nikt nie słucha
+    public GenerationListener listener;
+
+    //odbiorcy żądań, które dołączyły do tego przebiegu (SingleFlight) – dostają zdarzenia od chwili dołączenia
+    private final List<GenerationListener> joined = new CopyOnWriteArrayList<>();
+
+    public static GenerationOptions defaults() {
+        return new GenerationOptions();
+    }
+
+    /** Ile czasu zostało do terminu; null gdy termin nie jest ustawiony. */
+    public Duration remaining() {
+        if (deadline == null) return null;
+        Duration left = Duration.between(Instant.now(), deadline);
+        return left.isNegative() ? Duration.ZERO : left;
+    }
+
+    /**
+     * Inne żądanie dołącza do trwającego przebiegu: jego listener dostaje dalsze zdarzenia,
+     * a przebieg przejmuje jego priorytet, jeśli jest wyższy (dotyczy kolejnych slotów NLP i renderu;
+     * już czekające wywołania przenosi wołający – FairScheduler.Gate.promote). Zwraca poprzedni priorytet.
+     */
+    public synchronized Priority join(GenerationListener other, Priority otherPriority) {
+        Priority before = priority;
+        if (other != null) joined.add(other);
+        if (otherPriority != null && otherPriority.compareTo(priority) < 0) priority = otherPriority;
+        return before;
+    }
+
+    public boolean hasListeners() {
+        return listener != null || !joined.isEmpty();
+    }
+
+    public void emit(String type, Map<String, Object> data) {
+        if (listener != null) deliver(listener, type, data);
+        for (GenerationListener l : joined) deliver(l, type, data);
+    }
+
+    private static void deliver(GenerationListener l, String type, Map<String, Object> data) {
+        try {
+            l.onEvent(type, data);
+        } catch (RuntimeException e) {
+            //błąd odbiorcy (np. zerwane połączenie SSE) nie może przerwać generowania
+            System.err.println("[PROGRESS] " + type + ": " + e.getMessage());
+        }
+    }
+}
@@ -54,6 +54,10 @@ public class JavaDtoParser {
 
         for (Path file : javaFiles) parseFile(file, schemas);
 
+        // Page«T» i inne wbudowane obiekty we właściwościach -> osobne komponenty ($ref zamiast kopii)
+        int hoisted = SchemaCanonicalizer.hoistComponents(schemas);
+        if (hoisted > 0) System.out.println("[DTO] wbudowane schematy wyniesione do components: " + hoisted);
+
         System.out.println("[DTO] liczba schematów: " + schemas.size());
         return schemas;
     }
@@ -0,0 +1,128 @@
+package com.mariia.javaapi.code;
+
+import com.mariia.javaapi.code.ir.EndpointIR;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.media.Schema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Wyniki analizy kodu projektu (endpointy, DTO, security) trzymane w pamięci.
+ * Katalog wgranego projektu się nie zmienia (nowa wersja = nowe id), więc kluczem jest ścieżka.
+ * Równoległe żądania o ten sam projekt (np. spekulatywne generowanie po uploadzie
+ * i kliknięcie "generuj") czekają na jedno parsowanie zamiast robić je dwa razy.
+ */
+@Component
+public class ProjectAnalysisCache {
+
+    public record Analysis(
+            List<EndpointIR> endpoints,
+            Map<String, Schema> dtoSchemas,       // tylko do odczytu – kopiować przed modyfikacją mapy
+            JavaSecurityParser.SecurityModel security   // null, jeśli parsowanie się nie udało
+    ) {
+        /**
+         * Głęboka kopia schematów DTO dla jednego przebiegu generowania: buildSpec je poprawia
+         * (required, kanonizacja), a oryginały w tym samym czasie serializują inne przebiegi.
+         */
+        public Map<String, Schema> dtoSchemasCopy() {
+            Map<String, Schema> copy = new LinkedHashMap<>();
+            try {
+                for (Map.Entry<String, Schema> e : dtoSchemas.entrySet()) {
+                    Schema s = Json.mapper().readValue(Json.mapper().writeValueAsBytes(e.getValue()), Schema.class);
+                    s.setName(e.getValue().getName());
+                    copy.put(e.getKey(), s);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Nie można skopiować schematów DTO", e);
+            }
+            return copy;
+        }
+    }
+
+    private final Map<Path, CompletableFuture<Analysis>> cache;
+
+    public ProjectAnalysisCache(@Value("${docs.analysis.cache-size:32}") int maxProjects) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, CompletableFuture<Analysis>> eldest) {
+                return size() > maxProjects;
+            }
+        };
+    }
+
+    public Analysis analyze(Path projectDir) throws IOException {
+        Path key = projectDir.toAbsolutePath().normalize();
+        CompletableFuture<Analysis> mine = new CompletableFuture<>();
+        CompletableFuture<Analysis> existing;
+        synchronized (cache) {
+            existing = cache.putIfAbsent(key, mine);
+        }
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            mine.complete(parse(key));
+        } catch (Exception e) {
+            //błędu nie zapamiętujemy – następne żądanie spróbuje jeszcze raz
+            synchronized (cache) {
+                cache.remove(key, mine);
+            }
+            mine.completeExceptionally(e);
+        }
+        return await(mine);
+    }
+
+    public List<EndpointIR> endpoints(Path projectDir) throws IOException {
+        return analyze(projectDir).endpoints();
+    }
+
+    public void evict(Path projectDir) {
+        synchronized (cache) {
+            cache.remove(projectDir.toAbsolutePath().normalize());
+        }
+    }
+
+    private static Analysis parse(Path projectDir) throws IOException {
+        long t0 = System.nanoTime();
+        List<EndpointIR> endpoints = List.copyOf(new JavaSpringParser().parseProject(projectDir));
+
+        System.out.println("[DTO] użyty katalog do skanowania: " + projectDir);
+        Map<String, Schema> dtoSchemas;
+        try {
+            dtoSchemas = new JavaDtoParser().parseDtos(projectDir);
+        } catch (Exception e) {
+            System.err.println("[WARN] Pomijam parsowanie DTO: " + e.getMessage());
+            dtoSchemas = Map.of();
+        }
+
+        JavaSecurityParser.SecurityModel security = null;
+        try {
+            security = new JavaSecurityParser().parseSecurity(projectDir);
+        } catch (Exception e) {
+            System.err.println("[SEC] Błąd parsowania security: " + e.getMessage());
+        }
+
+        System.out.println("[ANALYSIS] " + projectDir.getFileName() + ": endpointy=" + endpoints.size()
+                + ", dto=" + dtoSchemas.size() + " (" + (System.nanoTime() - t0) / 1_000_000 + " ms)");
+        return new Analysis(endpoints, dtoSchemas, security);
+    }
+
+    private static Analysis await(CompletableFuture<Analysis> f) throws IOException {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.mariia.javaapi.code;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Kanonizacja schematów: wbudowane (inline) schematy obiektów powtarzające się w specyfikacji – np. Page<T>
+ * ze schemaForType i z JavaDtoParser – trafiają do components/schemas, a w miejscach użycia zostaje $ref.
+ * Wynosimy tylko struktury widziane co najmniej dwa razy (albo równe istniejącemu komponentowi); pojedynczy
+ * wbudowany obiekt zostaje na miejscu. Strukturalnie identyczne schematy (ten sam JSON) = jeden komponent.
+ * Nazwa z Schema.name oczyszczona do znaków dozwolonych w kluczu komponentu ("Page«User»" -> "PageUser");
+ * gdy pod tą nazwą jest już inny schemat – nazwa z przyrostkiem z hasha struktury (PageUser_1a2b3c4d),
+ * więc nie zależy od kolejności przechodzenia. Tablice i mapy zostają wbudowane (to tylko opakowanie
+ * na $ref), ich elementy są kanonizowane.
+ */
+public class SchemaCanonicalizer {
+
+    private static final String REF_PREFIX = "#/components/schemas/";
+    private static final Pattern INVALID_NAME_CHARS = Pattern.compile("[^A-Za-z0-9._-]");
+    private static final ObjectMapper JSON = Json.mapper();
+
+    private final Map<String, Schema> components;
+    //JSON wbudowanego schematu (przed kanonizacją dzieci) -> ile razy występuje
+    private final Map<String, Integer> occurrences = new HashMap<>();
+    //JSON schematu (po kanonizacji dzieci) -> nazwa komponentu
+    private final Map<String, String> byStructure = new HashMap<>();
+    private boolean counting;
+    private int hoisted;
+
+    private SchemaCanonicalizer(Map<String, Schema> components) {
+        this.components = components;
+    }
+
+    /** Schematy DTO: powtarzające się wbudowane obiekty we właściwościach -> osobne wpisy w tej samej mapie. Zwraca liczbę nowych wpisów. */
+    public static int hoistComponents(Map<String, Schema> schemas) {
+        SchemaCanonicalizer c = new SchemaCanonicalizer(schemas);
+        c.count(c::visitComponents);
+        c.visitComponents();
+        return c.hoisted;
+    }
+
+    /**
+     * Cała specyfikacja: components/schemas, parametry, ciała żądań i odpowiedzi operacji.
+     * Operacje wzięte bez zmian z poprzedniej wersji (reused, generowanie przyrostowe) mają $ref-y
+     * w znaczeniu poprzedniej specyfikacji: brakujący komponent kopiujemy z previous, a gdy pod tą
+     * samą nazwą jest teraz inna struktura – poprzednią dodajemy pod nazwą z hasha i przepinamy na nią
+     * $ref-y tych operacji. Idempotentne – można wołać przed każdym zapisem progresywnym.
+     * Zwraca liczbę nowych komponentów.
+     */
+    public static int canonicalize(OpenAPI api, OpenAPI previous, Collection<Operation> reused) {
+        if (api.getComponents() == null) api.setComponents(new Components());
+        if (api.getComponents().getSchemas() == null) api.getComponents().setSchemas(new LinkedHashMap<>());
+        SchemaCanonicalizer c = new SchemaCanonicalizer(api.getComponents().getSchemas());
+        c.resolvePrevious(previous, reused);
+        Runnable operations = () -> {
+            if (api.getComponents().getParameters() != null) {
+                api.getComponents().getParameters().values().forEach(c::visitParameter);
+            }
+            if (api.getPaths() != null) {
+                for (PathItem pi : api.getPaths().values()) {
+                    if (pi.getParameters() != null) pi.getParameters().forEach(c::visitParameter);
+                    for (Operation op : pi.readOperations()) c.visitOperation(op);
+                }
+            }
+        };
+        c.count(() -> {
+            c.visitComponents();
+            operations.run();
+        });
+        c.visitComponents();
+        //istniejące komponenty (DTO, przywrócone z previous): wbudowana kopia któregoś = $ref do niego
+        c.components.forEach((name, schema) -> c.byStructure.putIfAbsent(structureOf(schema), name));
+        operations.run();
+        return c.hoisted;
+    }
+
+    //pierwszy przebieg: tylko liczymy wystąpienia wbudowanych obiektów, niczego nie podmieniamy
+    private void count(Runnable walk) {
+        counting = true;
+        try {
+            walk.run();
+        } finally {
+            counting = false;
+        }
+    }
+
+    private void visitComponents() {
+        for (Schema s : new ArrayList<>(components.values())) visitChildren(s);
+    }
+
+    private void visitOperation(Operation op) {
+        if (op.getParameters() != null) op.getParameters().forEach(this::visitParameter);
+        if (op.getRequestBody() != null) visitContent(op.getRequestBody().getContent());
+        if (op.getResponses() != null) op.getResponses().values().forEach(r -> visitContent(r.getContent()));
+    }
+
+    private void visitParameter(Parameter p) {
+        if (p == null) return;
+        p.setSchema(canon(p.getSchema()));
+        visitContent(p.getContent());
+    }
+
+    private void visitContent(Content content) {
+        if (content == null) return;
+        content.values().forEach(mt -> mt.setSchema(canon(mt.getSchema())));
+    }
+
+    //schemat do wstawienia w miejsce s: $ref dla powtarzającego się wbudowanego obiektu, inaczej s (z przetworzonymi dziećmi)
+    private Schema canon(Schema s) {
+        if (s == null || s.get$ref() != null) return s;
+        boolean object = s.getProperties() != null && !s.getProperties().isEmpty();
+        String raw = object ? structureOf(s) : null;
+        if (counting && object) occurrences.merge(raw, 1, Integer::sum);
+        visitChildren(s);
+        if (counting || !object) return s;
+
+        String structure = structureOf(s);
+        String known = byStructure.get(structure);
+        if (known != null) return new Schema<>().$ref(REF_PREFIX + known);
+        if (occurrences.getOrDefault(raw, 0) < 2) return s;
+        return new Schema<>().$ref(REF_PREFIX + hoist(s, structure));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void visitChildren(Schema s) {
+        if (s == null || s.get$ref() != null) return;
+        Map<String, Schema> props = s.getProperties();
+        if (props != null) {
+            //podmieniamy tylko to, co się zmienia – schematy DTO są współdzielone przez ProjectAnalysisCache
+            for (Map.Entry<String, Schema> e : props.entrySet()) {
+                Schema c = canon(e.getValue());
+                if (c != e.getValue()) e.setValue(c);
+            }
+        }
+        Schema items = s.getItems();
+        if (items != null) {
+            Schema c = canon(items);
+            if (c != items) s.setItems(c);
+        }
+        if (s.getAdditionalProperties() instanceof Schema ap) {
+            Schema c = canon(ap);
+            if (c != ap) s.setAdditionalProperties(c);
+        }
+        //części allOf/anyOf/oneOf zostają na miejscu (tam wbudowany obiekt to zwykle rozszerzenie bazy)
+        for (List<Schema> parts : Arrays.asList(s.getAllOf(), s.getAnyOf(), s.getOneOf())) {
+            if (parts != null) parts.forEach(this::visitChildren);
+        }
+        if (s.getNot() != null) visitChildren(s.getNot());
+    }
+
+    private String hoist(Schema s, String structure) {
+        String name = baseName(s);
+        Schema existing = components.get(name);
+        if (existing != null && !structureOf(existing).equals(structure)) {
+            name = hashedName(name, structure);
+            existing = components.get(name);
+        }
+        if (existing == null) {
+            components.put(name, s);
+            hoisted++;
+        }
+        byStructure.put(structure, name);
+        return name;
+    }
+
+    /**
+     * $ref-y operacji z poprzedniej wersji (i komponentów, do których prowadzą) -> komponenty o tej
+     * samej strukturze co w previous: brakujące kopiujemy, zajęte przez inną strukturę dodajemy
+     * pod nazwą z hasha i przepinamy $ref-y.
+     */
+    private void resolvePrevious(OpenAPI previous, Collection<Operation> reused) {
+        if (previous == null || previous.getComponents() == null || previous.getComponents().getSchemas() == null
+                || reused == null || reused.isEmpty()) return;
+        Map<String, Schema> old = previous.getComponents().getSchemas();
+        List<Schema> restored = new ArrayList<>();
+        Map<String, String> renames = new HashMap<>();
+        Deque<String> todo = new ArrayDeque<>();
+        reused.forEach(op -> forEachRef(op, ref -> todo.add(ref.get$ref().substring(REF_PREFIX.length()))));
+        while (!todo.isEmpty()) {
+            String name = todo.pop();
+            Schema was = old.get(name);
+            if (renames.containsKey(name) || was == null) continue;
+            String structure = structureOf(was);
+            Schema now = components.get(name);
+            String target = (now == null || structureOf(now).equals(structure)) ? name : hashedName(name, structure);
+            renames.put(name, target);
+            if (!components.containsKey(target)) {
+                components.put(target, was);
+                restored.add(was);
+                forEachRef(was, ref -> todo.add(ref.get$ref().substring(REF_PREFIX.length())));
+            }
+        }
+        renames.entrySet().removeIf(e -> e.getKey().equals(e.getValue()));
+        if (renames.isEmpty()) return;
+        System.out.println("[SCHEMA] komponenty poprzedniej wersji pod nową nazwą: " + renames);
+        Consumer<Schema> retarget = ref -> {
+            String target = renames.get(ref.get$ref().substring(REF_PREFIX.length()));
+            if (target != null) ref.set$ref(REF_PREFIX + target);
+        };
+        reused.forEach(op -> forEachRef(op, retarget));
+        restored.forEach(s -> forEachRef(s, retarget));
+    }
+
+    private static void forEachRef(Operation op, Consumer<Schema> action) {
+        List<Schema> roots = new ArrayList<>();
+        if (op.getParameters() != null) {
+            for (Parameter p : op.getParameters()) {
+                roots.add(p.getSchema());
+                if (p.getContent() != null) p.getContent().values().forEach(mt -> roots.add(mt.getSchema()));
+            }
+        }
+        if (op.getRequestBody() != null && op.getRequestBody().getContent() != null) {
+            op.getRequestBody().getContent().values().forEach(mt -> roots.add(mt.getSchema()));
+        }
+        if (op.getResponses() != null) {
+            op.getResponses().values().forEach(r -> {
+                if (r.getContent() != null) r.getContent().values().forEach(mt -> roots.add(mt.getSchema()));
+            });
+        }
+        roots.forEach(s -> forEachRef(s, action));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void forEachRef(Schema s, Consumer<Schema> action) {
+        if (s == null) return;
+        if (s.get$ref() != null) {
+            if (s.get$ref().startsWith(REF_PREFIX)) action.accept(s);
+            return;
+        }
+        if (s.getProperties() != null) s.getProperties().values().forEach(p -> forEachRef((Schema) p, action));
+        forEachRef(s.getItems(), action);
+        if (s.getAdditionalProperties() instanceof Schema ap) forEachRef(ap, action);
+        for (List<Schema> parts : Arrays.asList(s.getAllOf(), s.getAnyOf(), s.getOneOf())) {
+            if (parts != null) parts.forEach(p -> forEachRef(p, action));
+        }
+        forEachRef(s.getNot(), action);
+    }
+
+    private static String baseName(Schema s) {
+        String name = (s.getName() == null) ? "" : INVALID_NAME_CHARS.matcher(s.getName()).replaceAll("");
+        return name.isEmpty() ? "InlineObject" : name;
+    }
+
+    //nazwa zależna tylko od struktury – ta sama w każdym przebiegu, niezależnie od kolejności
+    private static String hashedName(String base, String structure) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(structure.getBytes(StandardCharsets.UTF_8));
+            return base + "_" + HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String structureOf(Schema s) {
+        try {
+            return JSON.writeValueAsString(s);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
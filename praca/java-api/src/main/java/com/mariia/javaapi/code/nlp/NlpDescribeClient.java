@@ -0,0 +1,107 @@
+package com.mariia.javaapi.code.nlp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Klient serwisu python-nlp dla /describe.
+ * Format transportu wybiera nlp.transport:
+ *  - json (domyślnie) – application/json,
+ *  - cbor             – application/cbor w obie strony (mniejsze payloady, mniej parsowania tekstu).
+ * Odpowiedź jest od razu mapowana na {@link NlpDescribeResult} zamiast na drzewo Map.
+ * {@link #profile()} opisuje konfigurację opisów (tryb, model, parametry, wersja promptów) –
+ * wchodzi do odcisków endpointów, więc zmiana modelu unieważnia zapamiętane opisy.
+ */
+@Component
+public class NlpDescribeClient {
+
+    private static final ObjectMapper CBOR = CBORMapper.builder().findAndAddModules().build();
+    //tryb /describe po stronie python-nlp
+    private static final String MODE = "ollama";
+    private static final Duration PROFILE_TTL = Duration.ofMinutes(1);
+    private static final Duration PROFILE_TIMEOUT = Duration.ofSeconds(2);
+
+    private final WebClient nlp;
+    private final MediaType transport;
+    private volatile String profile;
+    private volatile long profileCheckedAt;
+
+    public NlpDescribeClient(@Qualifier("nlpClient") WebClient nlp,
+                     @Value("${nlp.transport:json}") String transport) {
+        this.nlp = nlp;
+        this.transport = "cbor".equals(transport.trim().toLowerCase(Locale.ROOT))
+                ? MediaType.APPLICATION_CBOR
+                : MediaType.APPLICATION_JSON;
+        System.out.println("[NLP] transport: " + this.transport);
+    }
+
+    /** Woła /describe; przy błędzie lub przekroczeniu czasu zwraca pusty wynik (działają fallbacki). */
+    public NlpDescribeResult describe(Map<String, Object> body, String audience, Duration timeout) {
+        try {
+            NlpDescribeResult res = nlp.post()
+                    .uri("/describe?mode=" + MODE + "&audience=" + audience)
+                    .contentType(transport)
+                    .accept(transport)
+                    .bodyValue(encode(body))
+                    .retrieve()
+                    .bodyToMono(NlpDescribeResult.class)
+                    .block(timeout);
+            return res == null ? new NlpDescribeResult() : res;
+        } catch (Exception e) {
+            System.err.println("[NLP] Błąd połączenia z NLP: " + e.getMessage());
+            return new NlpDescribeResult();
+        }
+    }
+
+    /**
+     * "tryb|model|parametry|wersja promptów" z /healthz serwisu NLP; odświeżane najwyżej co PROFILE_TTL.
+     * Gdy NLP nie odpowiada, zostaje ostatnia znana wartość; null = jeszcze nigdy się nie udało.
+     */
+    public String profile() {
+        long now = System.nanoTime();
+        if (profile == null || now - profileCheckedAt > PROFILE_TTL.toNanos()) {
+            profileCheckedAt = now;
+            String fresh = fetchProfile();
+            if (fresh != null) {
+                profile = fresh;
+            }
+        }
+        return profile;
+    }
+
+    private String fetchProfile() {
+        try {
+            JsonNode health = nlp.get()
+                    .uri("/healthz")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block(PROFILE_TIMEOUT);
+            if (health == null) {
+                return null;
+            }
+            JsonNode ollama = health.path("ollama");
+            return String.join("|", MODE, ollama.path("model").asText("?"),
+                    ollama.path("options").toString(), health.path("prompt_version").asText("?"));
+        } catch (Exception e) {
+            System.err.println("[NLP] /healthz niedostępne: " + e.getMessage());
+            return null;
+        }
+    }
+
+    //CBOR kodujemy sami do bajtów; JSON zostawiamy kodekowi WebClienta
+    private Object encode(Map<String, Object> body) throws IOException {
+        return MediaType.APPLICATION_CBOR.equals(transport) ? CBOR.writeValueAsBytes(body) : body;
+    }
+}
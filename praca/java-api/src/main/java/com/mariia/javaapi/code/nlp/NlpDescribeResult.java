@@ -0,0 +1,79 @@
+package com.mariia.javaapi.code.nlp;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonSetter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Odpowiedź z /describe (DescribeOut po stronie FastAPI) jako typowany obiekt.
+ * Nieznane pola są ignorowane, żeby zmiany w serwisie NLP nie psuły deserializacji.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NlpDescribeResult {
+    public String summary;
+    public String shortDescription;
+    public String mediumDescription;
+    public String longDescription;
+
+    public List<ParamDoc> paramDocs = new ArrayList<>();
+    public String returnDoc;
+    public List<String> notes;
+    public Examples examples;
+
+    //notatki jak dawniej z List<?>: element niebędący stringiem (obiekt, liczba) zamieniamy na tekst,
+    //zamiast unieważniać całą odpowiedź; "notes" innego typu niż lista pomijamy
+    @JsonSetter("notes")
+    void setNotes(Object raw) {
+        if (raw instanceof List<?> list) {
+            notes = list.stream().map(x -> Objects.toString(x, "")).toList();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ParamDoc {
+        public String name;
+        public String doc;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Examples {
+        public List<RequestExample> requests;
+        public ResponseExample response;
+    }
+
+    //model potrafi zwrócić {"curl": "..."} albo samego stringa
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class RequestExample {
+        public String curl;
+
+        public RequestExample() {
+        }
+
+        @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+        public static RequestExample of(String curl) {
+            RequestExample r = new RequestExample();
+            r.curl = curl;
+            return r;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ResponseExample {
+        public Integer status;
+        public Object body;
+
+        //"status" bywa liczbą albo stringiem; niepoprawny status nie może unieważnić całej odpowiedzi
+        @JsonSetter("status")
+        void setStatus(Object raw) {
+            if (raw == null) return;
+            try {
+                status = Integer.valueOf(raw.toString().trim());
+            } catch (NumberFormatException ignore) {
+            }
+        }
+    }
+}
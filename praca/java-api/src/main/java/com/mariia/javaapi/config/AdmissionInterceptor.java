@@ -0,0 +1,172 @@
+package com.mariia.javaapi.config;
+
+import com.mariia.javaapi.jobs.FairScheduler;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kontrola dopuszczenia dla drogich endpointów (generowanie, PDF, proxy NLP – lista w WebConfig).
+ *  - token bucket per klient: X-Real-IP od nginx, inaczej adres połączenia (nagłówków, których
+ *    nie umiemy uwierzytelnić, np. X-API-Key, nie bierzemy – nowy klucz = nowy pełny kubełek);
+ *    docs.admission.burst żądań od razu, potem docs.admission.per-minute,
+ *  - partia (/bulk/docs) kosztuje tyle tokenów, ile ma par projekt × poziom (chargeExtra z kontrolera);
+ *    przechodzi, gdy jest choć jeden token, a resztę bierze na dług – kolejne żądania klienta
+ *    czekają, aż się spłaci; odrzucona partia oddaje też token pobrany w preHandle,
+ *  - odrzucanie nadmiaru: gdy na sloty NLP czeka więcej niż docs.admission.max-queue wywołań,
+ *    nowe żądania dostają 429 od razu, zamiast spowalniać wszystkich,
+ *  - GET /docs/pdf z nagłówkiem Range nie kosztuje nic: podgląd serwuje wtedy gotowy plik bez generowania.
+ * 429 niesie Retry-After: dłuższy z czasów – do następnego tokenu albo szacowany czas
+ * rozładowania obecnej kolejki NLP (FairScheduler: kolejka × średni czas wywołania / sloty).
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    //powyżej tylu klientów usuwamy pełne (nieużywane) kubełki – najwyżej raz na SWEEP_INTERVAL_NANOS
+    private static final int MAX_CLIENTS = 10_000;
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+    //preHandle pobrał token za to żądanie (chargeExtra oddaje go, jeśli odrzuca)
+    private static final String CHARGED = AdmissionInterceptor.class.getName() + ".CHARGED";
+
+    private final FairScheduler scheduler;
+    private final boolean enabled;
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxQueue;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    public AdmissionInterceptor(FairScheduler scheduler,
+                                @Value("${docs.admission.enabled:true}") boolean enabled,
+                                @Value("${docs.admission.burst:5}") int burst,
+                                @Value("${docs.admission.per-minute:20}") int perMinute,
+                                @Value("${docs.admission.max-queue:300}") int maxQueue) {
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = Math.max(1, perMinute) / 60_000_000_000.0;
+        this.maxQueue = maxQueue;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        //endpointy zwracają Mono – drugie przejście (dispatch ASYNC) nie może zużywać kolejnego tokenu
+        if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        //kolejne strony podglądu PDF (GET z Range) tylko czytają opublikowany plik – nic nie generują
+        if ("GET".equals(request.getMethod()) && request.getHeader(HttpHeaders.RANGE) != null
+                && request.getRequestURI().endsWith("/docs/pdf")) {
+            return true;
+        }
+        long queueWaitMs = scheduler.nlp().estimatedWaitMs();
+
+        int queued = scheduler.nlp().queued();
+        if (queued > maxQueue) {
+            return reject(response, "Server busy (" + queued + " NLP calls queued).", queueWaitMs, "shed");
+        }
+
+        String client = clientKey(request);
+        long tokenWaitNanos = take(client, 1, 0);
+        if (tokenWaitNanos > 0) {
+            return reject(response, "Rate limit exceeded for " + client + ".",
+                    Math.max(tokenWaitNanos / 1_000_000, queueWaitMs), "limit " + client);
+        }
+        request.setAttribute(CHARGED, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Dodatkowe tokeny za żądanie, którego koszt znamy dopiero z treści (partia projektów).
+     * 0 = pobrane (albo kontrola wyłączona); inaczej Retry-After w sekundach – nic nie pobrano,
+     * a token z preHandle wraca do kubełka (żądanie i tak nie zostanie obsłużone).
+     */
+    public long chargeExtra(HttpServletRequest request, int tokens) {
+        if (!enabled || tokens <= 0) {
+            return 0;
+        }
+        int refund = (request.getAttribute(CHARGED) != null) ? 1 : 0;
+        long waitNanos = take(clientKey(request), tokens, refund);
+        if (waitNanos == 0) {
+            return 0;
+        }
+        request.removeAttribute(CHARGED);
+        long retryAfterMs = Math.max(waitNanos / 1_000_000, scheduler.nlp().estimatedWaitMs());
+        System.out.println("[ADMISSION] 429 (partia " + tokens + " tokenów, " + clientKey(request) + ")");
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+
+    private long take(String client, int tokens, int refundOnReject) {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (buckets.size() > MAX_CLIENTS && now - last > SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+            buckets.values().removeIf(b -> b.isFull(now, capacity, tokensPerNano));
+        }
+        return buckets.computeIfAbsent(client, k -> new Bucket(capacity))
+                .tryTake(tokens, refundOnReject, capacity, tokensPerNano);
+    }
+
+    private static boolean reject(HttpServletResponse response, String message, long retryAfterMs, String reason) throws IOException {
+        long retryAfter = Math.max(1, (retryAfterMs + 999) / 1000);
+        System.out.println("[ADMISSION] 429 (" + reason + "), Retry-After " + retryAfter + " s");
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message + " Retry after " + retryAfter + " s.");
+        return false;
+    }
+
+    //java-api jest osiągalne tylko przez nginx (expose w docker-compose), który ustawia X-Real-IP
+    private static String clientKey(HttpServletRequest request) {
+        String realIp = request.getHeader("X-Real-IP");
+        return "ip:" + ((realIp != null && !realIp.isBlank()) ? realIp.trim() : request.getRemoteAddr());
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long last = System.nanoTime();
+
+        Bucket(double capacity) {
+            this.tokens = capacity;
+        }
+
+        /**
+         * 0 = pobrane; inaczej ile nanosekund do pierwszego wolnego tokenu. Wystarczy jeden token –
+         * brakującą resztę kosztu bierzemy na dług (tokens < 0), który kolejne żądania odczekują.
+         * Przy odmowie oddajemy refund tokenów pobranych wcześniej za to samo żądanie – w tej samej
+         * sekcji krytycznej, więc nikt nie wejdzie między odmowę a zwrot; czas oczekiwania liczymy
+         * tak, by ponowione żądanie zapłaciło i zwrócone tokeny, i ten jeden.
+         */
+        synchronized long tryTake(int n, int refund, double capacity, double perNano) {
+            refill(System.nanoTime(), capacity, perNano);
+            if (tokens >= 1) {
+                tokens -= n;
+                return 0;
+            }
+            tokens = Math.min(capacity, tokens + refund);
+            return (long) Math.ceil((1 + refund - tokens) / perNano);
+        }
+
+        synchronized boolean isFull(long now, double capacity, double perNano) {
+            refill(now, capacity, perNano);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now, double capacity, double perNano) {
+            tokens = Math.min(capacity, tokens + (now - last) * perNano);
+            last = now;
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package com.mariia.javaapi.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
 
 @Configuration
 public class HttpClients {
 
+    // nlp.compression=true -> Accept-Encoding: gzip (python-nlp ma GZipMiddleware); domyślnie wyłączone –
+    // odpowiedzi /describe mają po kilka KB, a NLP stoi w tej samej sieci, więc kompresja tylko kosztuje CPU
+    // dekoder CBOR jest zawsze zarejestrowany; czy jest używany decyduje nlp.transport (NlpDescribeClient)
     @Bean
-    WebClient nlpClient(@Value("${nlp.url:http://python-nlp:8000}") String baseUrl) {
-        return WebClient.builder().baseUrl(baseUrl).build();
+    WebClient nlpClient(@Value("${nlp.url:http://python-nlp:8000}") String baseUrl,
+                        @Value("${nlp.compression:false}") boolean compression) {
+        ObjectMapper cbor = CBORMapper.builder().findAndAddModules().build();
+        return WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().compress(compression)))
+                //typ trzeba podać jawnie – bez niego dekoder przejmuje domyślne typy JSON.
+                //Enkodera CBOR nie rejestrujemy (Jackson2CborEncoder nie umie pisać strumieniowo),
+                //ciało żądania serializuje NlpDescribeClient
+                .codecs(c -> c.customCodecs().register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR)))
+                .build();
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.Map;
@@ -25,14 +26,16 @@ public class NlpProxyController {
      * Proxy do debugowego endpointu w Pythonie.
      * Front wysyła JSON z DescribeIn/NlpInputEntry.
      * Zwracamy dokładnie to, co Python zwróci ({ "prompt": "...", "raw": "..." }).
+     * Bez block(): Mono idzie prosto do Spring MVC, więc przez cały czas czekania na model
+     * (do 90 s) żaden wątek nie jest zajęty.
      */
     @PostMapping(value = "/output-preview", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Map<String, Object>> outputPreview(@RequestBody Map<String, Object> input) {
+    public Mono<ResponseEntity<Map<String, Object>>> outputPreview(@RequestBody Map<String, Object> input) {
         // audience/mode bierzemy z wejścia jeśli są, inaczej domyślne
         String audience = String.valueOf(input.getOrDefault("audience", "beginner"));
         String mode = String.valueOf(input.getOrDefault("mode", "ollama"));
 
-        Map<String, Object> res = nlpClient.post()
+        return nlpClient.post()
                 .uri(uriBuilder -> uriBuilder
                         .path("/nlp/output-preview")
                         .queryParam("audience", audience)
@@ -42,17 +45,13 @@ public class NlpProxyController {
                 .bodyValue(input)
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
-                .block(timeout);
-
-        if (res == null) {
-            // w razie czego zwróć pustą strukturę zamiast 500,
-            // front i tak pokazuje "prompt" i "raw" 1:1
-            return ResponseEntity.ok(Map.of(
-                    "prompt", "",
-                    "raw", ""
-            ));
-        }
-
-        return ResponseEntity.ok(res);
+                .timeout(timeout)
+                // w razie czego zwróć pustą strukturę zamiast 500,
+                // front i tak pokazuje "prompt" i "raw" 1:1
+                .defaultIfEmpty(Map.of(
+                        "prompt", "",
+                        "raw", ""
+                ))
+                .map(ResponseEntity::ok);
     }
 }
@@ -0,0 +1,87 @@
+package com.mariia.javaapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pule wątków generowania. Przy spring.threads.virtual.enabled=true (Tomcat też na wątkach
+ * wirtualnych) pule tła i zadań async dostają wątki wirtualne: przebieg generowania głównie
+ * czeka (sloty FairScheduler, NLP, dysk), więc zadań w locie może być więcej
+ * (docs.jobs.virtual-threads) bez kosztu wątków platformowych. Kolejka i odrzucanie (503) bez zmian.
+ */
+@Configuration
+@EnableScheduling   // przegląd dziennika zadań w klastrze (DocsJobService.pollCluster)
+public class TaskExecutors {
+
+    private final boolean virtualThreads;
+
+    public TaskExecutors(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    // praca w tle (np. wzbogacanie statycznej dokumentacji opisami z AI)
+    @Bean
+    ThreadPoolTaskExecutor docsBackgroundExecutor(@Value("${docs.background.threads:2}") int threads) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("docs-bg-");
+        useVirtualThreads(ex, "docs-bg-");
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setWaitForTasksToCompleteOnShutdown(false);
+        return ex;
+    }
+
+    // generowanie spekulatywne po uploadzie: jeden wątek o najniższym priorytecie,
+    // żeby nie podbierał CPU żądaniom użytkowników (zawsze platformowy – wirtualne nie mają priorytetu)
+    @Bean
+    ThreadPoolTaskExecutor docsSpeculativeExecutor(@Value("${docs.speculative.queue:16}") int queue) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("docs-spec-");
+        ex.setThreadPriority(Thread.MIN_PRIORITY);
+        ex.setCorePoolSize(1);
+        ex.setMaxPoolSize(1);
+        ex.setQueueCapacity(queue);
+        ex.setWaitForTasksToCompleteOnShutdown(false);
+        return ex;
+    }
+
+    // asynchroniczne zadania generowania (POST .../docs/...?async=true)
+    @Bean
+    ThreadPoolTaskExecutor docsJobExecutor(@Value("${docs.jobs.threads:2}") int platformThreads,
+                                           @Value("${docs.jobs.virtual-threads:32}") int virtualThreadsLimit,
+                                           @Value("${docs.jobs.queue:100}") int queue) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("docs-job-");
+        int threads = useVirtualThreads(ex, "docs-job-") ? virtualThreadsLimit : platformThreads;
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setQueueCapacity(queue);
+        ex.setWaitForTasksToCompleteOnShutdown(false);
+        return ex;
+    }
+
+    // Spring MVC: zapis elementów Flux/Mono do odpowiedzi (np. NDJSON z /bulk/docs). Nasze pule wyłączają
+    // applicationTaskExecutor Boota, a bez tej puli MVC bierze SimpleAsyncTaskExecutor – wątek na każdy element
+    @Bean
+    ThreadPoolTaskExecutor mvcAsyncExecutor(@Value("${docs.web.async-threads:8}") int threads,
+                                            @Value("${docs.web.async-queue:500}") int queue) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("mvc-async-");
+        useVirtualThreads(ex, "mvc-async-");
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setQueueCapacity(queue);
+        ex.setWaitForTasksToCompleteOnShutdown(false);
+        return ex;
+    }
+
+    private boolean useVirtualThreads(ThreadPoolTaskExecutor ex, String prefix) {
+        if (virtualThreads) {
+            ex.setThreadFactory(Thread.ofVirtual().name(prefix, 1).factory());
+        }
+        return virtualThreads;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mariia.javaapi.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admission;
+    private final ThreadPoolTaskExecutor mvcAsyncExecutor;
+
+    public WebConfig(AdmissionInterceptor admission,
+                     @Qualifier("mvcAsyncExecutor") ThreadPoolTaskExecutor mvcAsyncExecutor) {
+        this.admission = admission;
+        this.mvcAsyncExecutor = mvcAsyncExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor);
+    }
+
+    // tylko drogie endpointy: generowanie (sync/async/partia), PDF inline, edytor, proxy NLP;
+    // pobieranie gotowych plików i status zadań bez limitu
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admission).addPathPatterns(
+                "/api/projects/*/docs/from-code",
+                "/api/projects/*/docs/pdf",
+                "/api/projects/*/docs/editable",
+                "/api/projects/*/docs/edited/pdf",
+                "/api/projects/bulk/docs",
+                "/api/nlp/**");
+    }
+}
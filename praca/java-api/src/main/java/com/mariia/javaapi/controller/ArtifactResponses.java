@@ -0,0 +1,245 @@
+package com.mariia.javaapi.controller;
+
+import com.mariia.javaapi.uploads.ArtifactETags;
+import com.mariia.javaapi.uploads.ArtifactFiles;
+import com.mariia.javaapi.uploads.ProjectLocks;
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.ServletRequestListener;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Wysyłka gotowych artefaktów (GET yaml/pdf) bez ładowania pliku na stertę:
+ *  - ETag z treści (ArtifactETags) + If-None-Match -> 304, Cache-Control z docs.artifacts.cache-control,
+ *  - gotowy wariant {plik}.gz (zapisany przy generowaniu), gdy klient akceptuje gzip – Content-Encoding,
+ *    osobny ETag, Vary: Accept-Encoding; serwer niczego nie kompresuje per żądanie,
+ *  - Range (jeden albo kilka zakresów -> 206, multipart/byteranges; zakres spoza pliku -> 416),
+ *    If-Range z ETagiem – przeglądarki PDF dociągają kolejne strony.
+ * Plik otwieramy raz na żądanie (ArtifactFiles.open) pod blokadą odczytu projektu – CodeToDocsService
+ * publikuje YAML, JSON i warianty .gz pod blokadą zapisu, więc wybór wariantu i otwarcie widzą jedną
+ * generację. ETag, długość i bajty pochodzą z tego jednego uchwytu, a podmiana pliku w trakcie
+ * wysyłki nie zmienia tego, co idzie do klienta. Uchwyt zamyka requestDestroyed – po zakończeniu
+ * żądania, także asynchronicznego (Mono) i także wtedy, gdy klient zerwał połączenie.
+ * Wysyłka konkretnej wersji (expectedETag – powtórzenie POST-a z Idempotency-Key): inna wersja
+ * pod tą ścieżką = 409, zamiast po cichu wysłać plik z późniejszego generowania.
+ */
+@Component
+public class ArtifactResponses implements ServletRequestListener {
+
+    //uchwyty otwarte na potrzeby tego żądania – zamykane w requestDestroyed
+    private static final String OPENED = ArtifactResponses.class.getName() + ".OPENED";
+
+    private record Variant(Path path, ArtifactFiles.Opened content, boolean gzip) {}
+
+    private final ArtifactETags etags;
+    private final ProjectLocks locks;
+    private final String cacheControl;
+
+    public ArtifactResponses(ArtifactETags etags,
+                             ProjectLocks locks,
+                             @Value("${docs.artifacts.cache-control:private, no-cache}") String cacheControl) {
+        this.etags = etags;
+        this.locks = locks;
+        this.cacheControl = cacheControl;
+    }
+
+    public ResponseEntity<?> attachment(Path path, String filename, String contentType, HttpServletRequest request) throws Exception {
+        return attachment(path, filename, contentType, request, null);
+    }
+
+    /** Jak attachment, ale tylko wersja o ETagu expectedETag (z etag() w chwili generowania); inaczej 409. */
+    public ResponseEntity<?> attachment(Path path, String filename, String contentType, HttpServletRequest request,
+                                        String expectedETag) throws Exception {
+        return serve(path, "attachment; filename=\"" + filename + "\"", contentType, request, HttpHeaders.ACCEPT_ENCODING,
+                expectedETag);
+    }
+
+    /** ETag bieżącej wersji artefaktu (bez wariantu .gz). */
+    public String etag(Path path) throws IOException {
+        return etags.of(path);
+    }
+
+    public ResponseEntity<?> inline(Path path, String filename, String contentType, HttpServletRequest request) throws Exception {
+        return serve(path, "inline; filename=\"" + filename + "\"", contentType, request, HttpHeaders.ACCEPT_ENCODING, null);
+    }
+
+    /** Specyfikacja, której format (YAML / JSON) wybrano wg Accept – Vary obejmuje też Accept. */
+    public ResponseEntity<?> negotiated(Path path, String filename, String contentType, boolean attachment,
+                                       HttpServletRequest request) throws Exception {
+        String disposition = (attachment ? "attachment" : "inline") + "; filename=\"" + filename + "\"";
+        return serve(path, disposition, contentType, request, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING, null);
+    }
+
+    private ResponseEntity<?> serve(Path original, String disposition, String contentType, HttpServletRequest request,
+                                    String vary, String expectedETag) throws Exception {
+        Variant variant = locks.read(original.toAbsolutePath().getParent(), () -> open(original, request, expectedETag));
+        ArtifactFiles.Opened content = variant.content();
+        String etag;
+        try {
+            etag = etags.of(variant.path(), content);
+        } catch (IOException | RuntimeException e) {
+            content.close();
+            throw e;
+        }
+
+        if (expectedETag != null && !variant.gzip() && !etag.equals(expectedETag)) {
+            content.close();
+            return ResponseEntity.status(409)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(("Artifact was regenerated since this response was produced: " + original.getFileName()
+                            + ". Download the current version or retry with a new Idempotency-Key.").getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (ArtifactETags.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            content.close();
+            return ResponseEntity.status(304)
+                    .eTag(etag)
+                    .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                    .header(HttpHeaders.VARY, vary)
+                    .build();
+        }
+        track(request, content);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.set(HttpHeaders.CACHE_CONTROL, cacheControl);
+        headers.set(HttpHeaders.VARY, vary);
+        if (variant.gzip()) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, disposition);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentType(MediaType.parseMediaType(contentType));
+
+        if (request.getHeader(HttpHeaders.RANGE) != null) {
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            if (ifRange == null || ifRange.trim().equals(etag)) {
+                // Resource + nagłówek Range: 206 (jeden zakres albo multipart/byteranges) i 416 robi Spring
+                return ResponseEntity.ok().headers(headers).body(new OpenedResource(content, variant.path()));
+            }
+            // If-Range z inną wersją: cały (nowy) plik; dla InputStreamResource Spring nie stosuje Range
+            headers.setContentLength(content.size());
+            return ResponseEntity.ok().headers(headers).body(new InputStreamResource(content.newInputStream()));
+        }
+
+        headers.setContentLength(content.size());
+        return ResponseEntity.ok().headers(headers).body(new OpenedResource(content, variant.path()));
+    }
+
+    // wariant gzip zapisany przy generowaniu (bez kompresji per żądanie); przy Range zawsze oryginał.
+    // Przy oczekiwanej wersji .gz tylko, gdy oryginał ma ten ETag – inaczej otwieramy oryginał i serve() da 409
+    private Variant open(Path original, HttpServletRequest request, String expectedETag) throws IOException {
+        if (request.getHeader(HttpHeaders.RANGE) == null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            Path gz = ArtifactFiles.gzipSibling(original);
+            if (isFresh(gz, original) && (expectedETag == null || expectedETag.equals(etags.of(original)))) {
+                return new Variant(gz, ArtifactFiles.open(gz), true);
+            }
+        }
+        return new Variant(original, ArtifactFiles.open(original), false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void track(HttpServletRequest request, ArtifactFiles.Opened content) {
+        List<ArtifactFiles.Opened> opened = (List<ArtifactFiles.Opened>) request.getAttribute(OPENED);
+        if (opened == null) {
+            opened = new ArrayList<>(1);
+            request.setAttribute(OPENED, opened);
+        }
+        opened.add(content);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void requestDestroyed(ServletRequestEvent event) {
+        List<ArtifactFiles.Opened> opened = (List<ArtifactFiles.Opened>) event.getServletRequest().getAttribute(OPENED);
+        if (opened == null) {
+            return;
+        }
+        for (ArtifactFiles.Opened content : opened) {
+            try {
+                content.close();
+            } catch (IOException e) {
+                System.err.println("[ARTIFACTS] nie zamknięto pliku: " + e.getMessage());
+            }
+        }
+        opened.clear();
+    }
+
+    /**
+     * Treść otwartej wersji dla konwerterów Springa: znany rozmiar (Content-Length, zakresy)
+     * i niezależne strumienie – multipart/byteranges otwiera po jednym na każdy zakres.
+     */
+    private static final class OpenedResource extends AbstractResource {
+        private final ArtifactFiles.Opened content;
+        private final Path path;
+
+        OpenedResource(ArtifactFiles.Opened content, Path path) {
+            this.content = content;
+            this.path = path;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return content.newInputStream();
+        }
+
+        @Override
+        public long contentLength() {
+            return content.size();
+        }
+
+        @Override
+        public String getDescription() {
+            return "artifact [" + path + "]";
+        }
+    }
+
+    // .gz jest publikowany zaraz po oryginale; starszy od oryginału = z poprzedniej wersji (albo jeszcze nie ma nowego)
+    private static boolean isFresh(Path gz, Path original) throws IOException {
+        return Files.isRegularFile(gz)
+                && Files.getLastModifiedTime(gz).compareTo(Files.getLastModifiedTime(original)) >= 0;
+    }
+
+    // Accept-Encoding: gzip / x-gzip / *, z q > 0; jawne gzip;q=0 wygrywa z *
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        Double gzipQ = null;
+        Double anyQ = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) gzipQ = q;
+            else if (coding.equals("*")) anyQ = q;
+        }
+        double q = (gzipQ != null) ? gzipQ : (anyQ != null ? anyQ : 0);
+        return q > 0;
+    }
+}
@@ -0,0 +1,61 @@
+package com.mariia.javaapi.controller;
+
+import com.mariia.javaapi.jobs.DocsJob;
+import com.mariia.javaapi.jobs.DocsJobService;
+import com.mariia.javaapi.jobs.FairScheduler;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/projects")
+public class DocsJobsController {
+
+    private final DocsJobService jobService;
+    private final FairScheduler scheduler;
+
+    public DocsJobsController(DocsJobService jobService, FairScheduler scheduler) {
+        this.jobService = jobService;
+        this.scheduler = scheduler;
+    }
+
+    // status zadania z POST .../docs/from-code|pdf?async=true (polling)
+    @GetMapping("/{id}/jobs/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String id, @PathVariable String jobId) {
+        DocsJob job = jobService.get(id, jobId);
+        if (job == null) {
+            return ResponseEntity.status(404)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body("Job not found: " + jobId);
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(job);
+    }
+
+    // kolejki FairScheduler (nlp, render): sloty, zajęte, ile czeka łącznie
+    // oraz pozycje i czas oczekiwania wywołań tego projektu
+    @GetMapping("/{id}/queue")
+    public ResponseEntity<?> queue(@PathVariable String id) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(scheduler.snapshot(id));
+    }
+
+    // postęp zadania na żywo: status, analysis, plan, queue, endpoint (N z M, operationId), yaml, pdf, done/failed
+    @GetMapping(value = "/{id}/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String id,
+                                                @PathVariable String jobId,
+                                                @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        SseEmitter emitter = jobService.subscribe(id, jobId, lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .header("X-Accel-Buffering", "no")   // nginx: nie buforuj strumienia
+                .body(emitter);
+    }
+}
@@ -1,20 +1,49 @@
 package com.mariia.javaapi.controller;
 
 import com.mariia.javaapi.code.CodeToDocsService;
-import com.mariia.javaapi.code.JavaSpringParser;
+import com.mariia.javaapi.config.AdmissionInterceptor;
+import com.mariia.javaapi.code.GenerationListener;
+import com.mariia.javaapi.code.GenerationOptions;
+import com.mariia.javaapi.code.ProjectAnalysisCache;
 import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.docs.DocsEnrichmentService;
 import com.mariia.javaapi.docs.EditableDocsService;
 import com.mariia.javaapi.docs.PdfDocService;
+import com.mariia.javaapi.jobs.BulkDocsRequest;
+import com.mariia.javaapi.jobs.BulkDocsResult;
+import com.mariia.javaapi.jobs.DocsJob;
+import com.mariia.javaapi.jobs.DocsJobService;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.GenerationFlights;
+import com.mariia.javaapi.jobs.IdempotencyStore;
+import com.mariia.javaapi.jobs.Priority;
+import com.mariia.javaapi.uploads.ArtifactFiles;
 import com.mariia.javaapi.uploads.UploadStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 @RestController
 @RequestMapping("/api/projects")
@@ -22,20 +51,59 @@ public class ProjectDocsFromCodeController {
 
     private final UploadStorage storage;
     private final CodeToDocsService code2docs;
-    private final JavaSpringParser parser = new JavaSpringParser();
+    private final ProjectAnalysisCache analysisCache;
     private final PdfDocService pdfDocService;
     private final EditableDocsService editableDocsService;
+    private final DocsEnrichmentService enrichmentService;
+    private final DocsJobService jobService;
+    private final FairScheduler scheduler;
+    private final GenerationFlights flights;
+    private final IdempotencyStore idempotency;
+    private final ArtifactResponses artifacts;
+    private final AdmissionInterceptor admission;
+    private static final MediaType TEXT_YAML = MediaType.parseMediaType("text/yaml");
+    private static final MediaType APPLICATION_YAML = MediaType.parseMediaType("application/yaml");
+
+    private final Duration defaultDeadline;
+    private final Duration renderReserve;
+    private final int bulkConcurrency;
+    private final int bulkMaxItems;
 
     public ProjectDocsFromCodeController(
             UploadStorage storage,
             CodeToDocsService code2docs,
+            ProjectAnalysisCache analysisCache,
             PdfDocService pdfDocService,
-            EditableDocsService editableDocsService
+            EditableDocsService editableDocsService,
+            DocsEnrichmentService enrichmentService,
+            DocsJobService jobService,
+            FairScheduler scheduler,
+            GenerationFlights flights,
+            IdempotencyStore idempotency,
+            ArtifactResponses artifacts,
+            AdmissionInterceptor admission,
+            @Value("${docs.deadline.default-seconds:0}") long defaultDeadlineSeconds,
+            @Value("${docs.deadline.render-reserve-seconds:20}") long renderReserveSeconds,
+            @Value("${docs.bulk.concurrency:4}") int bulkConcurrency,
+            @Value("${docs.bulk.max-items:200}") int bulkMaxItems
     ) {
         this.storage = storage;
         this.code2docs = code2docs;
+        this.analysisCache = analysisCache;
         this.pdfDocService = pdfDocService;
         this.editableDocsService = editableDocsService;
+        this.enrichmentService = enrichmentService;
+        this.jobService = jobService;
+        this.scheduler = scheduler;
+        this.flights = flights;
+        this.idempotency = idempotency;
+        this.artifacts = artifacts;
+        this.admission = admission;
+        jobService.setHandler(this::runJob);
+        this.defaultDeadline = Duration.ofSeconds(defaultDeadlineSeconds);
+        this.renderReserve = Duration.ofSeconds(renderReserveSeconds);
+        this.bulkConcurrency = Math.max(1, bulkConcurrency);
+        this.bulkMaxItems = bulkMaxItems;
     }
 
     // =========================================================
@@ -43,37 +111,40 @@ public class ProjectDocsFromCodeController {
     // =========================================================
 
     @PostMapping(value = "/{id}/docs/from-code")
-    public ResponseEntity<byte[]> fromCode(
+    public Mono<ResponseEntity<?>> fromCode(
             @PathVariable String id,
-            @RequestParam(defaultValue = "advanced") String level
-    ) throws Exception {
+            @RequestParam(defaultValue = "advanced") String level,
+            @RequestParam(required = false) Integer deadlineSeconds,
+            @RequestParam(defaultValue = "ai") String mode,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            HttpServletRequest request
+    ) {
 
         Path projectDir = storage.resolveProjectDir(id);
         if (!Files.exists(projectDir)) {
-            return notFound("Project not found: " + id);
-        }
-
-        List<EndpointIR> endpoints = parser.parseProject(projectDir);
-        if (endpoints.isEmpty()) {
-            return badRequest("No endpoints found in source code.");
+            return Mono.just(notFound("Project not found: " + id));
         }
 
-        Files.createDirectories(projectDir);
-
-        String audience = level; // beginner / advanced
-        String projectName = resolveProjectName(id);
-        Path aiYaml = projectDir.resolve("openapi_" + audience + ".yaml");
-
-        code2docs.generateYamlFromCode(
-                endpoints,
-                projectName,
-                audience,
-                aiYaml,
-                projectDir
-        );
-
-        String fileName = buildFileName(projectName, audience, ".yaml");
-        return asAttachment(aiYaml, fileName, "text/yaml");
+        boolean runAsync = isAsync(async, prefer);
+        String fingerprint = String.join("|", "yaml", id, level, mode, String.valueOf(deadlineSeconds), String.valueOf(runAsync));
+        return idempotency.execute(idempotencyKey, fingerprint, () -> {
+            if (runAsync) {
+                return Mono.just(submitJob(id, "yaml", level, mode, deadlineSeconds));
+            }
+            return offload(() -> {
+                Path aiYaml;
+                try {
+                    aiYaml = generateDocs(id, projectDir, level, deadlineSeconds, mode, false, Priority.DOWNLOAD, null);
+                } catch (NoEndpointsException e) {
+                    return badRequest(e.getMessage());
+                }
+
+                String fileName = buildFileName(resolveProjectName(id), level, ".yaml");
+                return ResponseEntity.ok(new GeneratedArtifact(aiYaml, fileName, "text/yaml", artifacts.etag(aiYaml)));
+            });
+        }, stored -> deliver(stored, request));
     }
 
     // =========================================================
@@ -81,50 +152,94 @@ public class ProjectDocsFromCodeController {
     // =========================================================
 
     @PostMapping(value = "/{id}/docs/pdf")
-    public ResponseEntity<byte[]> pdfFrom(
+    public Mono<ResponseEntity<?>> pdfFrom(
             @PathVariable String id,
-            @RequestParam(defaultValue = "advanced") String level
-    ) throws Exception {
+            @RequestParam(defaultValue = "advanced") String level,
+            @RequestParam(required = false) Integer deadlineSeconds,
+            @RequestParam(defaultValue = "ai") String mode,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            HttpServletRequest request
+    ) {
 
         Path projectDir = storage.resolveProjectDir(id);
         if (!Files.exists(projectDir)) {
-            return notFound("Project not found: " + id);
+            return Mono.just(notFound("Project not found: " + id));
         }
 
-        List<EndpointIR> endpoints = parser.parseProject(projectDir);
-        if (endpoints.isEmpty()) {
-            return badRequest("No endpoints found in source code.");
-        }
+        boolean runAsync = isAsync(async, prefer);
+        String fingerprint = String.join("|", "pdf", id, level, mode, String.valueOf(deadlineSeconds), String.valueOf(runAsync));
+        return idempotency.execute(idempotencyKey, fingerprint, () -> {
+            if (runAsync) {
+                return Mono.just(submitJob(id, "pdf", level, mode, deadlineSeconds));
+            }
+            return offload(() -> {
+                Path aiPdf;
+                try {
+                    aiPdf = generateDocs(id, projectDir, level, deadlineSeconds, mode, true, Priority.DOWNLOAD, null);
+                } catch (NoEndpointsException e) {
+                    return badRequest(e.getMessage());
+                }
+
+                String fileName = buildFileName(resolveProjectName(id), level, ".pdf");
+                return ResponseEntity.ok(new GeneratedArtifact(aiPdf, fileName, MediaType.APPLICATION_PDF_VALUE,
+                        artifacts.etag(aiPdf)));
+            });
+        }, stored -> deliver(stored, request));
+    }
 
-        Files.createDirectories(projectDir);
+    // =========================================================
+    //  PDF (inline preview – z kodu)
+    // =========================================================
 
-        String audience = level;
-        String projectName = resolveProjectName(id);
-        Path aiYaml = projectDir.resolve("openapi_" + audience + ".yaml");
-        Path aiPdf  = projectDir.resolve("openapi_" + audience + ".pdf");
+    @GetMapping(value = "/{id}/docs/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
+    public Mono<ResponseEntity<?>> viewPdfInline(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "advanced") String level,
+            @RequestParam(required = false) Integer deadlineSeconds,
+            @RequestParam(defaultValue = "ai") String mode,
+            HttpServletRequest request
+    ) {
 
-        code2docs.generateYamlFromCode(
-                endpoints,
-                projectName,
-                audience,
-                aiYaml,
-                projectDir
-        );
+        Path projectDir = storage.resolveProjectDir(id);
+        if (!Files.exists(projectDir)) {
+            return Mono.just(notFound("Project not found: " + id));
+        }
 
-        pdfDocService.renderPdfFromYaml(aiYaml, aiPdf);
+        // kolejne zakresy tego samego podglądu (przeglądarka PDF dociąga strony przez Range/If-Range):
+        // bez generowania – ten sam opublikowany plik, więc If-Range z ETagiem pierwszej odpowiedzi pasuje
+        if (request.getHeader(HttpHeaders.RANGE) != null) {
+            Path published = projectDir.resolve("openapi_" + level + ".pdf");
+            if (!Files.exists(published)) {
+                return Mono.just(notFound("PDF documentation not found. Generate documentation first."));
+            }
+            return offload(() -> artifacts.inline(published, buildFileName(resolveProjectName(id), level, ".pdf"),
+                    MediaType.APPLICATION_PDF_VALUE, request));
+        }
 
-        String fileName = buildFileName(projectName, audience, ".pdf");
-        return asAttachment(aiPdf, fileName, MediaType.APPLICATION_PDF_VALUE);
+        return offload(() -> {
+            Path aiPdf;
+            try {
+                aiPdf = generateDocs(id, projectDir, level, deadlineSeconds, mode, true, Priority.INTERACTIVE, null);
+            } catch (NoEndpointsException e) {
+                return badRequest(e.getMessage());
+            }
+
+            String fileName = buildFileName(resolveProjectName(id), level, ".pdf");
+            return artifacts.inline(aiPdf, fileName, MediaType.APPLICATION_PDF_VALUE, request);
+        });
     }
 
     // =========================================================
-    //  PDF (inline preview – z kodu)
+    //  PDF (download) – BEZ ponownego generowania (artefakt zadania)
     // =========================================================
 
-    @GetMapping(value = "/{id}/docs/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
-    public ResponseEntity<byte[]> viewPdfInline(
+    @GetMapping(value = "/{id}/docs/pdf/download")
+    public ResponseEntity<?> downloadPdf(
             @PathVariable String id,
-            @RequestParam(defaultValue = "advanced") String level
+            @RequestParam(defaultValue = "advanced") String level,
+            HttpServletRequest request
     ) throws Exception {
 
         Path projectDir = storage.resolveProjectDir(id);
@@ -132,40 +247,24 @@ public class ProjectDocsFromCodeController {
             return notFound("Project not found: " + id);
         }
 
-        List<EndpointIR> endpoints = parser.parseProject(projectDir);
-        if (endpoints.isEmpty()) {
-            return badRequest("No endpoints found in source code.");
+        Path aiPdf = projectDir.resolve("openapi_" + level + ".pdf");
+        if (!Files.exists(aiPdf)) {
+            return badRequest("PDF documentation not found. Generate documentation first.");
         }
 
-        Files.createDirectories(projectDir);
-
-        String audience = level;
-        String projectName = resolveProjectName(id);
-        Path aiYaml = projectDir.resolve("openapi_" + audience + ".yaml");
-        Path aiPdf  = projectDir.resolve("openapi_" + audience + ".pdf");
-
-        code2docs.generateYamlFromCode(
-                endpoints,
-                projectName,
-                audience,
-                aiYaml,
-                projectDir
-        );
-
-        pdfDocService.renderPdfFromYaml(aiYaml, aiPdf);
-
-        String fileName = buildFileName(projectName, audience, ".pdf");
-        return asInline(aiPdf, fileName, MediaType.APPLICATION_PDF_VALUE);
+        String fileName = buildFileName(resolveProjectName(id), level, ".pdf");
+        return artifacts.attachment(aiPdf, fileName, MediaType.APPLICATION_PDF_VALUE, request);
     }
 
 // =========================================================
 //  YAML (inline + download) – BEZ ponownego generowania
 // =========================================================
 
-    @GetMapping(value = "/{id}/docs/yaml", produces = "text/yaml")
-    public ResponseEntity<byte[]> viewYamlInline(
+    @GetMapping(value = "/{id}/docs/yaml", produces = {"text/yaml", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> viewYamlInline(
             @PathVariable String id,
-            @RequestParam(defaultValue = "advanced") String level
+            @RequestParam(defaultValue = "advanced") String level,
+            HttpServletRequest request
     ) throws Exception {
 
         Path projectDir = storage.resolveProjectDir(id);
@@ -182,14 +281,22 @@ public class ProjectDocsFromCodeController {
             return badRequest("YAML documentation not found. Generate documentation first.");
         }
 
+        // Accept: application/json -> openapi_{level}.json, zapisany w tym samym przebiegu co YAML
+        Path aiJson = projectDir.resolve("openapi_" + audience + ".json");
+        if (prefersJson(request.getHeader(HttpHeaders.ACCEPT)) && Files.exists(aiJson)) {
+            return artifacts.negotiated(aiJson, buildFileName(projectName, audience, ".json"),
+                    MediaType.APPLICATION_JSON_VALUE, false, request);
+        }
+
         String fileName = buildFileName(projectName, audience, ".yaml");
-        return asInline(aiYaml, fileName, "text/yaml");
+        return artifacts.negotiated(aiYaml, fileName, "text/yaml", false, request);
     }
 
     @GetMapping(value = "/{id}/docs/yaml/download")
-    public ResponseEntity<byte[]> downloadYaml(
+    public ResponseEntity<?> downloadYaml(
             @PathVariable String id,
-            @RequestParam(defaultValue = "advanced") String level
+            @RequestParam(defaultValue = "advanced") String level,
+            HttpServletRequest request
     ) throws Exception {
 
         Path projectDir = storage.resolveProjectDir(id);
@@ -206,8 +313,15 @@ public class ProjectDocsFromCodeController {
             return badRequest("YAML documentation not found. Generate documentation first.");
         }
 
+        // Accept: application/json -> openapi_{level}.json, zapisany w tym samym przebiegu co YAML
+        Path aiJson = projectDir.resolve("openapi_" + audience + ".json");
+        if (prefersJson(request.getHeader(HttpHeaders.ACCEPT)) && Files.exists(aiJson)) {
+            return artifacts.negotiated(aiJson, buildFileName(projectName, audience, ".json"),
+                    MediaType.APPLICATION_JSON_VALUE, true, request);
+        }
+
         String fileName = buildFileName(projectName, audience, ".yaml");
-        return asAttachment(aiYaml, fileName, "text/yaml");
+        return artifacts.negotiated(aiYaml, fileName, "text/yaml", true, request);
     }
 
     // =========================================================
@@ -218,50 +332,54 @@ public class ProjectDocsFromCodeController {
             value = "/{id}/docs/editable",
             produces = MediaType.TEXT_PLAIN_VALUE
     )
-    public ResponseEntity<String> generateEditableHtml(
+    public Mono<ResponseEntity<String>> generateEditableHtml(
             @PathVariable String id,
-            @RequestParam(defaultValue = "advanced") String level
-    ) throws Exception {
+            @RequestParam(defaultValue = "advanced") String level,
+            @RequestParam(required = false) Integer deadlineSeconds
+    ) {
 
         Path projectDir = storage.resolveProjectDir(id);
         if (!Files.exists(projectDir)) {
             // tutaj zwracamy ResponseEntity<String>, NIE używamy helperów byte[]
-            return ResponseEntity.status(404)
+            return Mono.just(ResponseEntity.status(404)
                     .contentType(MediaType.TEXT_PLAIN)
-                    .body("Project not found: " + id);
+                    .body("Project not found: " + id));
         }
 
-        List<EndpointIR> endpoints = parser.parseProject(projectDir);
-        if (endpoints.isEmpty()) {
-            return ResponseEntity.badRequest()
+        return offload(() -> {
+            List<EndpointIR> endpoints = analysisCache.endpoints(projectDir);
+            if (endpoints.isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body("No endpoints found in source code.");
+            }
+
+            Files.createDirectories(projectDir);
+
+            String audience = level;
+            String projectName = resolveProjectName(id);
+            Path aiYaml = projectDir.resolve("openapi_" + audience + ".yaml");
+
+            // jeśli jeszcze nie ma pliku – wygeneruj z kodu
+            if (!Files.exists(aiYaml)) {
+                code2docs.generateYamlFromCode(
+                        endpoints,
+                        projectName,
+                        audience,
+                        aiYaml,
+                        projectDir,
+                        generationOptions(deadlineSeconds, "ai", false, Priority.INTERACTIVE)
+                );
+            }
+
+            // a jeśli jest, po prostu go czytamy
+            String yaml = Files.readString(aiYaml);
+
+            return ResponseEntity
+                    .ok()
                     .contentType(MediaType.TEXT_PLAIN)
-                    .body("No endpoints found in source code.");
-        }
-
-        Files.createDirectories(projectDir);
-
-        String audience = level;
-        String projectName = resolveProjectName(id);
-        Path aiYaml = projectDir.resolve("openapi_" + audience + ".yaml");
-
-        // jeśli jeszcze nie ma pliku – wygeneruj z kodu
-        if (!Files.exists(aiYaml)) {
-            code2docs.generateYamlFromCode(
-                    endpoints,
-                    projectName,
-                    audience,
-                    aiYaml,
-                    projectDir
-            );
-        }
-
-        // a jeśli jest, po prostu go czytamy
-        String yaml = Files.readString(aiYaml);
-
-        return ResponseEntity
-                .ok()
-                .contentType(MediaType.TEXT_PLAIN)
-                .body(yaml);
+                    .body(yaml);
+        });
     }
 
     // =========================================================
@@ -272,32 +390,34 @@ public class ProjectDocsFromCodeController {
             value = "/{id}/docs/edited/pdf",
             consumes = MediaType.TEXT_PLAIN_VALUE
     )
-    public ResponseEntity<byte[]> generatePdfFromEditedHtml(
+    public Mono<ResponseEntity<byte[]>> generatePdfFromEditedHtml(
             @PathVariable String id,
             @RequestParam(defaultValue = "advanced") String level,
             @RequestBody String editedYaml
-    ) throws Exception {
+    ) {
 
         Path projectDir = storage.resolveProjectDir(id);
         if (!Files.exists(projectDir)) {
-            return notFound("Project not found: " + id);
+            return Mono.just(notFound("Project not found: " + id));
         }
 
-        Files.createDirectories(projectDir);
+        return offload(() -> {
+            Files.createDirectories(projectDir);
 
-        String audience = level;
-        String projectName = resolveProjectName(id);
+            String audience = level;
+            String projectName = resolveProjectName(id);
 
-        // zapisujemy edytowany YAML
-        Path aiYamlEdited = projectDir.resolve("openapi_" + audience + "_edited.yaml");
-        Files.writeString(aiYamlEdited, editedYaml);
+            // zapisujemy edytowany YAML
+            Path aiYamlEdited = projectDir.resolve("openapi_" + audience + "_edited.yaml");
+            ArtifactFiles.writeString(aiYamlEdited, editedYaml);
 
-        // generujemy PDF z tego YAML
-        Path aiPdfEdited = projectDir.resolve("openapi_" + audience + "_edited.pdf");
-        pdfDocService.renderPdfFromYaml(aiYamlEdited, aiPdfEdited);
+            // generujemy PDF z tego YAML
+            Path aiPdfEdited = projectDir.resolve("openapi_" + audience + "_edited.pdf");
+            renderPdf(id, Priority.INTERACTIVE, aiYamlEdited, aiPdfEdited);
 
-        String fileName = buildFileName(projectName, audience, "_edited.pdf");
-        return asAttachment(aiPdfEdited, fileName, MediaType.APPLICATION_PDF_VALUE);
+            String fileName = buildFileName(projectName, audience, "_edited.pdf");
+            return asAttachment(aiPdfEdited, fileName, MediaType.APPLICATION_PDF_VALUE);
+        });
     }
 
     // =========================================================
@@ -319,7 +439,7 @@ public class ProjectDocsFromCodeController {
             return notFound("Project not found: " + id);
         }
 
-        List<EndpointIR> endpoints = parser.parseProject(projectDir);
+        List<EndpointIR> endpoints = analysisCache.endpoints(projectDir);
         if (endpoints.isEmpty()) {
             return badRequest("No endpoints found in source code.");
         }
@@ -328,10 +448,301 @@ public class ProjectDocsFromCodeController {
         return ResponseEntity.ok(inputs);
     }
 
+    // =========================================================
+    //  Partia: wiele projektów × poziomów, wyniki strumieniem NDJSON
+    // =========================================================
+
+    /**
+     * Jedna partia zamiast osobnego żądania na projekt. Pary projekt × poziom idą przez ten sam
+     * przebieg co POST /docs/from-code|pdf, najwyżej docs.bulk.concurrency naraz; NLP i render
+     * dzielą sloty FairScheduler (round-robin po projektach), a poziomy jednego projektu stoją
+     * obok siebie, więc parsowanie robi się raz (ProjectAnalysisCache).
+     * Każda zakończona para to od razu jedna linia application/x-ndjson (BulkDocsResult).
+     */
+    @PostMapping(value = "/bulk/docs", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<BulkDocsResult>> bulkDocs(@RequestBody BulkDocsRequest request,
+                                                         HttpServletRequest httpRequest) {
+        List<String> ids = (request.projectIds == null) ? List.of() : request.projectIds.stream().distinct().toList();
+        List<String> levels = (request.levels == null || request.levels.isEmpty())
+                ? List.of("advanced")
+                : request.levels.stream().distinct().toList();
+        int total = ids.size() * levels.size();
+        if (total == 0 || total > bulkMaxItems) {
+            return ResponseEntity.badRequest()
+                    .body(Flux.just(bulkError("projectIds: 1.." + bulkMaxItems + " par projekt × poziom, jest " + total)));
+        }
+        //jeden token pobrał już AdmissionInterceptor; partia kosztuje tyle, ile ma par
+        long retryAfter = admission.chargeExtra(httpRequest, total - 1);
+        if (retryAfter > 0) {
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                    .body(Flux.just(bulkError("Rate limit exceeded: " + total + " items. Retry after " + retryAfter + " s.")));
+        }
+
+        boolean withPdf = "pdf".equalsIgnoreCase(request.kind);
+        String mode = (request.mode == null) ? "ai" : request.mode;
+        AtomicInteger done = new AtomicInteger();
+        System.out.println("[BULK] " + ids.size() + " projektów × " + levels + " (" + (withPdf ? "pdf" : "yaml") + ")");
+
+        Flux<BulkDocsResult> results = Flux.fromIterable(ids)
+                .concatMap(id -> Flux.fromIterable(levels).map(level -> List.of(id, level)))
+                .flatMap(pair -> offload(() -> runBulkItem(pair.get(0), pair.get(1), withPdf, mode, request.deadlineSeconds))
+                        .doOnNext(r -> {
+                            r.done = done.incrementAndGet();
+                            r.total = total;
+                        }), bulkConcurrency);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .header("X-Accel-Buffering", "no")
+                .body(results);
+    }
+
+    private BulkDocsResult runBulkItem(String id, String level, boolean withPdf, String mode, Integer deadlineSeconds) {
+        BulkDocsResult r = new BulkDocsResult();
+        r.projectId = id;
+        r.level = level;
+        r.kind = withPdf ? "pdf" : "yaml";
+        long t0 = System.nanoTime();
+        Path projectDir = storage.resolveProjectDir(id);
+        if (!id.matches("[A-Za-z0-9_-]+") || !Files.isDirectory(projectDir)) {
+            r.status = "NOT_FOUND";
+            r.message = "Project not found: " + id;
+            return r;
+        }
+        try {
+            generateDocs(id, projectDir, level, deadlineSeconds, mode, withPdf, Priority.DOWNLOAD, null);
+            r.status = "DONE";
+            r.artifacts = artifactLinks(id, level, withPdf);
+        } catch (NoEndpointsException e) {
+            r.status = "NO_ENDPOINTS";
+            r.message = e.getMessage();
+        } catch (Exception e) {
+            r.status = "FAILED";
+            r.message = e.getClass().getSimpleName() + ": " + e.getMessage();
+            System.err.println("[BULK] " + id + "/" + level + " nieudane: " + r.message);
+        }
+        r.ms = (System.nanoTime() - t0) / 1_000_000;
+        return r;
+    }
+
+    private static BulkDocsResult bulkError(String message) {
+        BulkDocsResult r = new BulkDocsResult();
+        r.status = "FAILED";
+        r.message = message;
+        return r;
+    }
+
     // =========================================================
     //  Helpers
     // =========================================================
 
+    /**
+     * Wspólny przebieg POST/GET generowania: YAML z kodu (+ PDF dla withPdf).
+     * Zwraca ścieżkę do YAML albo PDF. Wołane w wątku HTTP albo w zadaniu asynchronicznym.
+     * Identyczne równoległe przebiegi (id, level, yaml/pdf, tryb) – także wzbogacanie w tle
+     * i generowanie spekulatywne – dzielą jeden przebieg (GenerationFlights): dołączający dostaje wynik
+     * pierwszego (liczony z terminem pierwszego), dalsze zdarzenia postępu na swój listener, a przebieg –
+     * jego priorytet, jeśli wyższy. Żądanie samego YAML dołącza też do trwającego przebiegu PDF
+     * (ten i tak zapisuje openapi_{level}.yaml), a żądanie PDF w trybie AI najpierw do trwającego
+     * przebiegu AI YAML (np. spekulatywnego po uploadzie) – potem generowanie przyrostowe bierze
+     * gotowe opisy z odcisków i zostaje tylko render.
+     * priority: klasa w FairScheduler dla wywołań NLP i renderu PDF.
+     */
+    private Path generateDocs(String id, Path projectDir, String level, Integer deadlineSeconds,
+                              String mode, boolean withPdf, Priority priority,
+                              GenerationListener progress) throws Exception {
+        String modeKey = isStaticMode(mode) ? GenerationFlights.STATIC : GenerationFlights.AI;
+        if (!withPdf && flights.joinIfRunning(new GenerationFlights.Key(id, level, GenerationFlights.PDF, modeKey),
+                progress, priority) != null) {
+            return projectDir.resolve("openapi_" + level + ".yaml");
+        }
+        if (withPdf && !isStaticMode(mode)) {
+            try {
+                flights.joinIfRunning(new GenerationFlights.Key(id, level, GenerationFlights.YAML, GenerationFlights.AI),
+                        progress, priority);
+            } catch (Exception e) {
+                //nieudany przebieg w tle (np. spekulatywny) – liczymy sami
+                System.err.println("[FLIGHT] " + id + "/" + level + ": przebieg YAML nieudany (" + e.getMessage() + "), generuję PDF od nowa");
+            }
+        }
+        // termin liczymy od startu pracy (w trybie async zadanie mogło czekać w kolejce)
+        GenerationOptions options = generationOptions(deadlineSeconds, mode, withPdf, priority);
+        options.listener = progress;
+        GenerationFlights.Key key = new GenerationFlights.Key(id, level, withPdf ? GenerationFlights.PDF : GenerationFlights.YAML, modeKey);
+        return flights.run(key, options, () -> runGeneration(id, projectDir, level, mode, withPdf, options));
+    }
+
+    private Path runGeneration(String id, Path projectDir, String level, String mode, boolean withPdf,
+                               GenerationOptions options) throws Exception {
+        List<EndpointIR> endpoints = analysisCache.endpoints(projectDir);
+        if (endpoints.isEmpty()) {
+            throw new NoEndpointsException();
+        }
+
+        Files.createDirectories(projectDir);
+
+        String audience = level; // beginner / advanced
+        String projectName = resolveProjectName(id);
+        Path aiYaml = projectDir.resolve("openapi_" + audience + ".yaml");
+
+        Path result = aiYaml;
+        if (withPdf) {
+            // PDF renderujemy z modelu w pamięci, a YAML zapisuje się w tym czasie obok
+            CodeToDocsService.GeneratedSpec spec = code2docs.generateSpecFromCode(
+                    endpoints, projectName, audience, aiYaml, projectDir, options);
+            result = projectDir.resolve("openapi_" + audience + ".pdf");
+            Path pdf = result;
+            long t0 = System.nanoTime();
+            long queuedMs = inRenderSlot(id, options.priority,
+                    position -> options.emit("queue", Map.of("stage", "render", "position", position)),
+                    () -> pdfDocService.renderPdf(spec.api(), pdf));
+            options.emit("pdf", Map.of(
+                    "file", result.getFileName().toString(),
+                    "bytes", Files.size(result),
+                    "ms", (System.nanoTime() - t0) / 1_000_000,
+                    "queuedMs", queuedMs));
+            spec.awaitYaml();
+        } else {
+            code2docs.generateYamlFromCode(
+                    endpoints,
+                    projectName,
+                    audience,
+                    aiYaml,
+                    projectDir,
+                    options
+            );
+        }
+        enrichIfStatic(mode, endpoints, projectName, audience, aiYaml, projectDir);
+        return result;
+    }
+
+    //render PDF w slocie FairScheduler; zwraca czas oczekiwania na slot
+    private long renderPdf(String id, Priority priority, Path yaml, Path pdf) throws Exception {
+        return inRenderSlot(id, priority, null, () -> pdfDocService.renderPdfFromYaml(yaml, pdf));
+    }
+
+    private long inRenderSlot(String id, Priority priority, IntConsumer onQueued, Callable<?> render) throws Exception {
+        try (FairScheduler.Slot slot = scheduler.render().acquire(id, priority, null, onQueued)) {
+            if (slot == null) {
+                throw new InterruptedException("Przerwano oczekiwanie na render PDF");
+            }
+            render.call();
+            return slot.waitedMs();
+        }
+    }
+
+    /**
+     * Praca blokująca (parsowanie, NLP, render, pliki) poza wątkiem żądania: Spring MVC subskrybuje
+     * zwrócone Mono asynchronicznie, więc wątek Tomcata wraca do puli od razu, a samo generowanie
+     * idzie na boundedElastic (ograniczona pula do pracy blokującej).
+     */
+    private static <T> Mono<T> offload(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static final class NoEndpointsException extends Exception {
+        NoEndpointsException() {
+            super("No endpoints found in source code.");
+        }
+    }
+
+    // JSON tylko, gdy klient woli go od YAML (wyższe q); */* i przeglądarki dostają YAML jak dotąd
+    private static boolean prefersJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        double json = 0;
+        double yaml = 0;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                double q = type.getQualityValue();
+                if (type.includes(MediaType.APPLICATION_JSON)) json = Math.max(json, q);
+                if (type.includes(TEXT_YAML) || type.includes(APPLICATION_YAML)) yaml = Math.max(yaml, q);
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return json > yaml;
+    }
+
+    // async=true albo nagłówek "Prefer: respond-async" (RFC 7240)
+    private static boolean isAsync(boolean async, String prefer) {
+        return async || (prefer != null && prefer.toLowerCase(Locale.ROOT).contains("respond-async"));
+    }
+
+    /** 202 Accepted + Location do statusu zadania; artefakty to linki do gotowych plików. */
+    private ResponseEntity<?> submitJob(String id, String kind, String level, String mode, Integer deadlineSeconds) {
+        DocsJob job;
+        try {
+            job = jobService.submit(id, kind, level, mode, deadlineSeconds);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(503)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body("Too many generation jobs queued. Try again later.".getBytes(StandardCharsets.UTF_8));
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/projects/" + id + "/jobs/" + job.id))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(job);
+    }
+
+    //wykonanie zadania async – na węźle, który je przejął (w klastrze niekoniecznie ten, który je przyjął)
+    private Map<String, String> runJob(DocsJob job, GenerationListener progress) throws Exception {
+        boolean withPdf = "pdf".equals(job.kind);
+        generateDocs(job.projectId, storage.resolveProjectDir(job.projectId), job.level, job.deadlineSeconds,
+                job.mode, withPdf, Priority.DOWNLOAD, progress);
+        return artifactLinks(job.projectId, job.level, withPdf);
+    }
+
+    //linki do gotowych plików (bez ponownego generowania)
+    private static Map<String, String> artifactLinks(String id, String level, boolean withPdf) {
+        Map<String, String> artifacts = new LinkedHashMap<>();
+        artifacts.put("yaml", "/api/projects/" + id + "/docs/yaml/download?level=" + level);
+        if (withPdf) {
+            artifacts.put("pdf", "/api/projects/" + id + "/docs/pdf/download?level=" + level);
+        }
+        return artifacts;
+    }
+
+    /**
+     * Termin całego przebiegu: deadlineSeconds z żądania, inaczej docs.deadline.default-seconds
+     * (0 = bez limitu). Dla PDF zostawiamy zapas czasu na renderowanie.
+     * mode=static – dokument bez NLP (milisekundy), opisy AI dochodzą w tle.
+     */
+    private GenerationOptions generationOptions(Integer deadlineSeconds, String mode, boolean withPdf,
+                                                Priority priority) {
+        GenerationOptions options = GenerationOptions.defaults();
+        options.staticOnly = isStaticMode(mode);
+        options.priority = priority;
+        if (options.staticOnly) {
+            return options;
+        }
+        Duration total = (deadlineSeconds != null && deadlineSeconds > 0)
+                ? Duration.ofSeconds(deadlineSeconds)
+                : defaultDeadline;
+        if (total.isZero() || total.isNegative()) {
+            return options;
+        }
+        if (withPdf) {
+            Duration reserve = renderReserve.compareTo(total.dividedBy(2)) < 0 ? renderReserve : total.dividedBy(2);
+            total = total.minus(reserve);
+        }
+        options.deadline = Instant.now().plus(total);
+        return options;
+    }
+
+    private static boolean isStaticMode(String mode) {
+        return "static".equalsIgnoreCase(mode);
+    }
+
+    //po statycznym generowaniu uruchom w tle przebieg AI, który nadpisze plik(i)
+    private void enrichIfStatic(String mode, List<EndpointIR> endpoints, String projectName,
+                                String audience, Path aiYaml, Path projectDir) {
+        if (isStaticMode(mode)) {
+            enrichmentService.enrichInBackground(endpoints, projectName, audience, aiYaml, projectDir);
+        }
+    }
+
     private String resolveProjectName(String id) {
         String fromStorage = storage.getProjectName(id);
         if (fromStorage != null && !fromStorage.isBlank()) {
@@ -370,19 +781,28 @@ public class ProjectDocsFromCodeController {
                 .body(msg.getBytes(StandardCharsets.UTF_8));
     }
 
-    private static ResponseEntity<byte[]> asAttachment(Path path, String filename, String contentType) throws Exception {
-        byte[] bytes = Files.readAllBytes(path);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .header(HttpHeaders.CACHE_CONTROL, "no-store")
-                .contentType(MediaType.parseMediaType(contentType))
-                .body(bytes);
+    /**
+     * Wynik POST-a generującego: sam opublikowany plik i ETag wersji, którą to żądanie wygenerowało
+     * (tyle zapamiętuje IdempotencyStore); odpowiedź z Range i gzip składa ArtifactResponses przy każdym
+     * wysłaniu. Powtórzenie po późniejszej regeneracji dostaje 409, nie cudzy plik.
+     */
+    private record GeneratedArtifact(Path path, String filename, String contentType, String etag) {}
+
+    private ResponseEntity<?> deliver(ResponseEntity<?> stored, HttpServletRequest request) throws Exception {
+        if (!(stored.getBody() instanceof GeneratedArtifact artifact)) {
+            return stored;
+        }
+        if (!Files.isRegularFile(artifact.path())) {
+            //powtórzenie po usunięciu projektu / artefaktu
+            return notFound("Artifact no longer available: " + artifact.filename());
+        }
+        return artifacts.attachment(artifact.path(), artifact.filename(), artifact.contentType(), request, artifact.etag());
     }
 
-    private static ResponseEntity<byte[]> asInline(Path path, String filename, String contentType) throws Exception {
+    private static ResponseEntity<byte[]> asAttachment(Path path, String filename, String contentType) throws Exception {
         byte[] bytes = Files.readAllBytes(path);
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                 .header(HttpHeaders.CACHE_CONTROL, "no-store")
                 .contentType(MediaType.parseMediaType(contentType))
                 .body(bytes);
@@ -1,5 +1,6 @@
 package com.mariia.javaapi.controller;
 
+import com.mariia.javaapi.docs.SpeculativeGenerationService;
 import com.mariia.javaapi.uploads.UploadResult;
 import com.mariia.javaapi.uploads.UploadStorage;
 import com.mariia.javaapi.uploads.ZipUtils;
@@ -18,13 +19,16 @@ import java.util.UUID;
 public class ProjectsController {
 
     private final UploadStorage storage;
+    private final SpeculativeGenerationService speculative;
 
-    public ProjectsController(UploadStorage storage) {
+    public ProjectsController(UploadStorage storage, SpeculativeGenerationService speculative) {
         this.storage = storage;
+        this.speculative = speculative;
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<UploadResult> upload(@RequestPart("file") MultipartFile file) {
+    public ResponseEntity<UploadResult> upload(@RequestPart("file") MultipartFile file,
+                                               @RequestParam(required = false) String replaces) {
         UploadResult res = new UploadResult();
         String id = UUID.randomUUID().toString().replace("-", "");
         res.id = id;
@@ -59,6 +63,16 @@ public class ProjectsController {
             Files.createDirectories(projectDir);
             ZipUtils.unzip(zipPath, projectDir);
 
+            // Nowa wersja istniejącego projektu: przenieś poprzednie specyfikacje,
+            // generowanie opisze wtedy od nowa tylko zmienione endpointy
+            if (StringUtils.hasText(replaces) && replaces.matches("[A-Za-z0-9_-]+")) {
+                int copied = storage.copyGeneratedSpecs(replaces, id);
+                System.out.println("[UPLOAD] " + id + " zastępuje " + replaces + " (skopiowano plików: " + copied + ")");
+            }
+
+            // Opcjonalnie: parsowanie i opisy NLP startują od razu, w wolnym czasie
+            speculative.onUpload(id, projectDir, storage.getProjectName(id));
+
             // Od tej pory NIE szukamy automatycznie OpenAPI w projekcie
             res.zipPath = zipPath.toString();
             res.projectDir = projectDir.toString();
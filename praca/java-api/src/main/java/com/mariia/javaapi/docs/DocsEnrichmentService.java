@@ -0,0 +1,115 @@
+package com.mariia.javaapi.docs;
+
+import com.mariia.javaapi.code.CodeToDocsService;
+import com.mariia.javaapi.code.GenerationOptions;
+import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.GenerationFlights;
+import com.mariia.javaapi.jobs.Priority;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Wzbogacanie w tle dokumentacji wygenerowanej w trybie mode=static.
+ * Przebieg AI działa progresywnie: openapi_{level}.yaml jest nadpisywany w miarę
+ * napływu opisów z NLP, a na końcu – jeśli istnieje – odświeżany jest też PDF.
+ * Dzięki odciskom endpointów (generowanie przyrostowe) opisane już endpointy nie idą do NLP.
+ * Wywołania NLP i render idą w FairScheduler z priorytetem BACKGROUND – ustępują żądaniom użytkowników.
+ * Przebieg ma ten sam klucz co generowanie AI YAML z kontrolera (GenerationFlights): gdy takie
+ * generowanie (YAML albo PDF) już trwa, wzbogacanie się nie zaczyna, a żądanie, które przyjdzie
+ * w trakcie wzbogacania, dołącza do niego z własnym priorytetem – nikt nie nadpisuje pliku równolegle.
+ */
+@Service
+public class DocsEnrichmentService {
+
+    private final CodeToDocsService code2docs;
+    private final PdfDocService pdfDocService;
+    private final TaskExecutor executor;
+    private final FairScheduler scheduler;
+    private final GenerationFlights flights;
+
+    public DocsEnrichmentService(CodeToDocsService code2docs,
+                                 PdfDocService pdfDocService,
+                                 @Qualifier("docsBackgroundExecutor") TaskExecutor executor,
+                                 FairScheduler scheduler,
+                                 GenerationFlights flights) {
+        this.code2docs = code2docs;
+        this.pdfDocService = pdfDocService;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.flights = flights;
+    }
+
+    /** Zwraca false, jeśli generowanie AI dla tego projektu i poziomu już trwa. */
+    public boolean enrichInBackground(List<EndpointIR> endpoints,
+                                      String projectName,
+                                      String level,
+                                      Path aiYaml,
+                                      Path projectDir) {
+        String project = projectDir.getFileName().toString();
+        if (isRunning(project, level)) {
+            return false;
+        }
+        executor.execute(() -> enrich(project, endpoints, projectName, level, aiYaml, projectDir));
+        return true;
+    }
+
+    /** To samo co enrichInBackground, ale w wątku wywołującego (np. wątek generowania spekulatywnego). */
+    public boolean enrichNow(List<EndpointIR> endpoints,
+                             String projectName,
+                             String level,
+                             Path aiYaml,
+                             Path projectDir) {
+        String project = projectDir.getFileName().toString();
+        if (isRunning(project, level)) {
+            return false;
+        }
+        enrich(project, endpoints, projectName, level, aiYaml, projectDir);
+        return true;
+    }
+
+    private void enrich(String project, List<EndpointIR> endpoints, String projectName,
+                        String level, Path aiYaml, Path projectDir) {
+        GenerationOptions options = GenerationOptions.defaults();
+        options.progressive = true;
+        options.priority = Priority.BACKGROUND;
+        GenerationFlights.Key key = new GenerationFlights.Key(project, level, GenerationFlights.YAML, GenerationFlights.AI);
+        try {
+            flights.run(key, options, () -> {
+                code2docs.generateYamlFromCode(endpoints, projectName, level, aiYaml, projectDir, options);
+
+                Path pdf = aiYaml.resolveSibling(pdfNameFor(aiYaml));
+                if (Files.exists(pdf)) {
+                    //priorytet z options – dołączone żądanie użytkownika mogło go podnieść
+                    try (FairScheduler.Slot slot = scheduler.render().acquire(project, options.priority, null, null)) {
+                        if (slot != null) {
+                            pdfDocService.renderPdfFromYaml(aiYaml, pdf);
+                        }
+                    }
+                }
+                return aiYaml;
+            });
+            System.out.println("[ENRICH] zakończono: " + aiYaml);
+        } catch (Exception e) {
+            System.err.println("[ENRICH] Błąd wzbogacania " + aiYaml + ": " + e.getMessage());
+        }
+    }
+
+    //trwa generowanie AI tego pliku: YAML (wzbogacanie, spekulatywne, żądanie) albo PDF (zapisuje też YAML)
+    private boolean isRunning(String project, String level) {
+        return flights.isRunning(new GenerationFlights.Key(project, level, GenerationFlights.YAML, GenerationFlights.AI))
+                || flights.isRunning(new GenerationFlights.Key(project, level, GenerationFlights.PDF, GenerationFlights.AI));
+    }
+
+    //openapi_advanced.yaml -> openapi_advanced.pdf
+    private static String pdfNameFor(Path yaml) {
+        String name = yaml.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return ((dot > 0) ? name.substring(0, dot) : name) + ".pdf";
+    }
+}
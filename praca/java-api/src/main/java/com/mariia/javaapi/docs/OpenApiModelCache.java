@@ -0,0 +1,126 @@
+package com.mariia.javaapi.docs;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.core.models.ParseOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Sparsowane openapi_{level}.yaml trzymane w pamięci (LRU, docs.openapi.cache-size plików),
+ * żeby kolejne rendery/podglądy tej samej specyfikacji nie przechodziły znowu przez swagger-parser.
+ * Wpis jest ważny dla konkretnej wersji pliku: mtime + rozmiar + fileKey (inode). Nowa specyfikacja
+ * jest publikowana atomową podmianą (ArtifactFiles), więc zawsze ma inny inode – stary wpis
+ * przestaje pasować. Wtedy porównujemy jeszcze SHA-256 treści: ta sama treść (np. ponownie
+ * zapisany edytowany YAML) = ten sam model, inna = parsowanie od nowa.
+ * Modele są współdzielone – tylko do odczytu (PdfDocService ich nie modyfikuje).
+ */
+@Component
+public class OpenApiModelCache {
+
+    private record Stamp(FileTime modified, long size, Object fileKey) {}
+
+    private record Entry(Stamp stamp, String hash, CompletableFuture<OpenAPI> model) {}
+
+    private final Map<Path, Entry> cache;
+
+    public OpenApiModelCache(@Value("${docs.openapi.cache-size:32}") int maxFiles) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                return size() > maxFiles;
+            }
+        };
+    }
+
+    /** Model z pliku YAML; IllegalStateException, jeśli pliku nie da się sparsować. */
+    public OpenAPI get(Path yaml) throws IOException {
+        Path key = yaml.toAbsolutePath().normalize();
+        Stamp stamp = stampOf(key);
+
+        Entry existing;
+        synchronized (cache) {
+            existing = cache.get(key);
+        }
+        if (existing != null && existing.stamp().equals(stamp)) {
+            return await(existing.model());
+        }
+
+        //inna wersja pliku – ale np. ten sam edytowany YAML wysłany drugi raz ma tę samą treść
+        String content = Files.readString(key, StandardCharsets.UTF_8);
+        String hash = sha256(content);
+        Entry mine = new Entry(stamp, hash, new CompletableFuture<>());
+        Entry same;
+        synchronized (cache) {
+            //ponowny odczyt pod blokadą: równoległe żądanie mogło już zacząć parsować tę treść
+            same = cache.get(key);
+            if (same != null && same.hash().equals(hash)) {
+                cache.put(key, new Entry(stamp, hash, same.model()));
+            } else {
+                cache.put(key, mine);
+                same = null;
+            }
+        }
+        if (same != null) {
+            return await(same.model());
+        }
+        try {
+            long t0 = System.nanoTime();
+            ParseOptions options = new ParseOptions();
+            options.setResolve(true);
+            OpenAPI api = new OpenAPIV3Parser().readContents(content, null, options).getOpenAPI();
+            if (api == null) {
+                throw new IllegalStateException("Nie można wczytać OpenAPI z: " + key);
+            }
+            System.out.println("[OPENAPI] sparsowano " + key.getFileName() + " (" + (System.nanoTime() - t0) / 1_000_000 + " ms)");
+            mine.model().complete(api);
+        } catch (Exception e) {
+            //błędu nie zapamiętujemy – następny odczyt spróbuje jeszcze raz
+            synchronized (cache) {
+                cache.remove(key, mine);
+            }
+            mine.model().completeExceptionally(e);
+        }
+        return await(mine.model());
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Stamp stampOf(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        return new Stamp(attrs.lastModifiedTime(), attrs.size(), Objects.requireNonNullElse(attrs.fileKey(), ""));
+    }
+
+    private static OpenAPI await(CompletableFuture<OpenAPI> f) throws IOException {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.mariia.javaapi.docs;
 
+import com.mariia.javaapi.uploads.ArtifactFiles;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
 import io.swagger.v3.oas.models.Components;
 import io.swagger.v3.oas.models.OpenAPI;
@@ -9,12 +10,9 @@ import io.swagger.v3.oas.models.media.*;
 import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.responses.ApiResponse;
 import io.swagger.v3.oas.models.security.SecurityRequirement;
-import io.swagger.v3.parser.OpenAPIV3Parser;
 import org.springframework.stereotype.Service;
 import io.swagger.v3.oas.models.security.SecurityScheme;
 
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -22,19 +20,30 @@ import java.util.*;
 @Service
 public class PdfDocService {
 
+    private final OpenApiModelCache models;
+
+    public PdfDocService(OpenApiModelCache models) {
+        this.models = models;
+    }
+
+    // model z cache – ponowny render tej samej wersji pliku nie parsuje YAML-a
     public Path renderPdfFromYaml(Path openapiYaml, Path outPdf) throws Exception {
-        OpenAPI api = new OpenAPIV3Parser().read(openapiYaml.toAbsolutePath().toString());
-        if (api == null) {
-            throw new IllegalStateException("Nie można wczytać OpenAPI z: " + openapiYaml);
-        }
+        return renderPdf(models.get(openapiYaml), outPdf);
+    }
 
+    /**
+     * Render z modelu w pamięci (prosto z CodeToDocsService) – bez zapisu, odczytu i parsowania YAML.
+     * Model tylko czytamy, więc może być w tym czasie serializowany do YAML w innym wątku.
+     */
+    public Path renderPdf(OpenAPI api, Path outPdf) throws Exception {
         String html = buildHtml(api);
         if (!html.isEmpty() && html.charAt(0) == '\uFEFF') { // usuń BOM jeśli występuje
             html = html.substring(1);
         }
 
-        Files.createDirectories(outPdf.getParent());
-        try (OutputStream os = Files.newOutputStream(outPdf)) {
+        // render do pliku tymczasowego i atomowa podmiana – podgląd/pobieranie nie zobaczy pół PDF-a
+        String content = html;
+        ArtifactFiles.publish(outPdf, os -> {
             PdfRendererBuilder b = new PdfRendererBuilder();
             b.useFastMode();
 
@@ -46,10 +55,10 @@ public class PdfDocService {
                 return is;
             }, "DejaVuSerif");
 
-            b.withHtmlContent(html, "file:/");
+            b.withHtmlContent(content, "file:/");
             b.toStream(os);
             b.run();
-        }
+        });
         return outPdf;
     }
 
@@ -0,0 +1,78 @@
+package com.mariia.javaapi.docs;
+
+import com.mariia.javaapi.code.ProjectAnalysisCache;
+import com.mariia.javaapi.code.ir.EndpointIR;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Generowanie spekulatywne (docs.speculative.enabled=true): zaraz po uploadzie, w wolnym czasie,
+ * parsujemy projekt (endpointy, DTO, security) do ProjectAnalysisCache, a potem – jeśli
+ * docs.speculative.nlp=true – przepuszczamy endpointy przez NLP dla domyślnego poziomu.
+ * Opisy lądują w openapi_{level}.yaml razem z odciskami, więc późniejsze "generuj"
+ * bierze je z generowania przyrostowego zamiast pytać model drugi raz.
+ * Przebieg NLP idzie przez DocsEnrichmentService, czyli pod tym samym kluczem co generowanie AI YAML
+ * z kontrolera (GenerationFlights) i z priorytetem BACKGROUND: "generuj" w trakcie spekulacji
+ * dołącza do niej i podnosi jej priorytet, zamiast uruchamiać drugi przebieg na tym samym pliku.
+ */
+@Service
+public class SpeculativeGenerationService {
+
+    private final ProjectAnalysisCache analysisCache;
+    private final DocsEnrichmentService enrichmentService;
+    private final TaskExecutor executor;
+    private final boolean enabled;
+    private final boolean withNlp;
+    private final String level;
+
+    public SpeculativeGenerationService(ProjectAnalysisCache analysisCache,
+                                        DocsEnrichmentService enrichmentService,
+                                        @Qualifier("docsSpeculativeExecutor") TaskExecutor executor,
+                                        @Value("${docs.speculative.enabled:false}") boolean enabled,
+                                        @Value("${docs.speculative.nlp:true}") boolean withNlp,
+                                        @Value("${docs.speculative.level:advanced}") String level) {
+        this.analysisCache = analysisCache;
+        this.enrichmentService = enrichmentService;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.withNlp = withNlp;
+        this.level = level;
+    }
+
+    /** Zwraca true, jeśli praca została zakolejkowana. */
+    public boolean onUpload(String id, Path projectDir, String projectName) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            executor.execute(() -> speculate(id, projectDir, projectName));
+            return true;
+        } catch (TaskRejectedException e) {
+            //kolejka pełna – nic się nie stanie, wszystko zrobi się przy "generuj"
+            System.out.println("[SPEC] kolejka pełna, pomijam " + id);
+            return false;
+        }
+    }
+
+    private void speculate(String id, Path projectDir, String projectName) {
+        try {
+            List<EndpointIR> endpoints = analysisCache.endpoints(projectDir);
+            if (endpoints.isEmpty() || !withNlp) {
+                return;
+            }
+            Path aiYaml = projectDir.resolve("openapi_" + level + ".yaml");
+            //jeśli ktoś już generuje ten plik, nie dublujemy pracy
+            if (!enrichmentService.enrichNow(endpoints, projectName, level, aiYaml, projectDir)) {
+                System.out.println("[SPEC] " + id + ": generowanie już trwa, pomijam NLP");
+            }
+        } catch (Exception e) {
+            System.err.println("[SPEC] Błąd dla " + id + ": " + e.getMessage());
+        }
+    }
+}
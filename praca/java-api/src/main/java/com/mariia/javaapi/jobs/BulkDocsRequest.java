@@ -0,0 +1,14 @@
+package com.mariia.javaapi.jobs;
+
+import java.util.List;
+
+/**
+ * Żądanie POST /api/projects/bulk/docs: wszystkie pary projekt × poziom generowane jako jedna partia.
+ */
+public class BulkDocsRequest {
+    public List<String> projectIds;
+    public List<String> levels = List.of("advanced");
+    public String kind = "yaml";     // yaml / pdf
+    public String mode = "ai";
+    public Integer deadlineSeconds;  // termin dla każdej pary osobno
+}
@@ -0,0 +1,20 @@
+package com.mariia.javaapi.jobs;
+
+import java.util.Map;
+
+/**
+ * Jedna linia strumienia NDJSON z POST /api/projects/bulk/docs – wysyłana, gdy para projekt × poziom
+ * się zakończy (w kolejności kończenia, nie zgłoszenia).
+ * Status: DONE / FAILED / NOT_FOUND / NO_ENDPOINTS.
+ */
+public class BulkDocsResult {
+    public String projectId;
+    public String level;
+    public String kind;
+    public String status;
+    public String message;
+    public long ms;
+    public int done;     // ile par zakończono, łącznie z tą
+    public int total;
+    public Map<String, String> artifacts;
+}
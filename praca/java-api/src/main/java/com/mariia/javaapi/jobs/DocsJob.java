@@ -0,0 +1,38 @@
+package com.mariia.javaapi.jobs;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Zadanie generowania dokumentacji (odpowiedź GET /api/projects/{id}/jobs/{jobId}).
+ * Status: QUEUED -> RUNNING -> DONE / FAILED; w klastrze także LOST – tylko w pamięci węzła, który
+ * stracił dzierżawę i przerwał wykonanie (GET pokazuje wtedy stan z dziennika, od nowego właściciela).
+ * artifacts: nazwa -> link do pobrania gotowego pliku (bez ponownego generowania).
+ * Szczegółowy postęp: GET /api/projects/{id}/jobs/{jobId}/events (SSE).
+ * queuePosition: pozycja w kolejce FairScheduler, gdy zadanie właśnie czeka na slot NLP/renderu (inaczej null);
+ * queuedMs: łączny czas oczekiwania na sloty.
+ */
+public class DocsJob {
+    public String id;
+    public String projectId;
+    public String kind;      // yaml / pdf
+    public String level;
+    public String mode;
+    public Integer deadlineSeconds;
+    public volatile String node;    // węzeł wykonujący (id z JobJournal)
+    public volatile String status;
+    public volatile String message;
+    public Instant createdAt;
+    public volatile Instant startedAt;
+    public volatile Instant finishedAt;
+    public volatile int endpointsDone;
+    public volatile int endpointsTotal;
+    public volatile Integer queuePosition;
+    public volatile long queuedMs;
+    public volatile Map<String, String> artifacts = new LinkedHashMap<>();
+
+    public boolean isFinished() {
+        return "DONE".equals(status) || "FAILED".equals(status) || "LOST".equals(status);
+    }
+}
@@ -0,0 +1,505 @@
+package com.mariia.javaapi.jobs;
+
+import com.mariia.javaapi.code.GenerationListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchroniczne zadania generowania. Wątek HTTP tylko rejestruje zadanie i od razu
+ * zwraca jego id; samo generowanie (NLP, PDF) idzie na docsJobExecutor.
+ * Zadania trzymamy w pamięci; zakończone są usuwane po docs.jobs.retention-minutes.
+ *
+ * Każde zadanie ma dziennik zdarzeń postępu (etapy, kolejne endpointy), udostępniany
+ * jako strumień SSE: nowy subskrybent dostaje najpierw zdarzenia, które już były. Etapy
+ * (status, analysis, plan, yaml, pdf, koniec) zostają wszystkie; zdarzeń endpoint / queue
+ * trzymamy tylko docs.jobs.event-history ostatnich – każde niesie pełny stan postępu
+ * (index z total, pozycja w kolejce), więc wznowiony klient nic nie traci.
+ *
+ * docs.cluster.enabled=true (kilka replik na wspólnym wolumenie uploads): stan zadań trafia do
+ * JobJournal, a zadanie wykonuje węzeł, który zdobył dzierżawę – od razu węzeł przyjmujący,
+ * jeśli ma wolne miejsce (docs.cluster.max-jobs-per-node), inaczej któryś z pozostałych przy
+ * kolejnym przeglądzie dziennika (docs.cluster.poll-ms). Ten sam przegląd odnawia dzierżawy
+ * własnych zadań i przejmuje zadania węzłów, które przestały je odnawiać. Węzeł, któremu nie udało się
+ * odnowić dzierżawy, przerywa swoje wykonanie (przerwanie wątku) i oznacza je lokalnie jako LOST –
+ * zadanie należy już do innego węzła, więc dalsza praca tutaj tylko dublowałaby NLP i zapisy.
+ * Status (GET) działa z każdego węzła; strumień SSE tylko z węzła wykonującego
+ * (gdzie indziej 404 – front zostaje przy pollingu).
+ */
+@Service
+public class DocsJobService {
+
+    /**
+     * Wykonanie zadania na podstawie jego opisu (projekt, rodzaj, poziom, tryb, termin);
+     * zwraca artefakty (nazwa -> link). Opis zamiast lambdy, bo w klastrze zadanie
+     * może wykonać inny węzeł niż ten, który je przyjął.
+     */
+    @FunctionalInterface
+    public interface JobHandler {
+        Map<String, String> run(DocsJob job, GenerationListener progress) throws Exception;
+    }
+
+    //w klastrze stan zadania zapisujemy do dziennika nie częściej niż co tyle (poza zmianą statusu)
+    private static final Duration PERSIST_INTERVAL = Duration.ofSeconds(1);
+
+    private final TaskExecutor executor;
+    private final JobJournal journal;
+    private final Duration retention;
+    private final Duration sseTimeout;
+    private final boolean clustered;
+    private final int maxLocalJobs;
+    private final int queueLimit;
+    private final int eventHistory;
+    private final Map<String, DocsJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, EventLog> events = new ConcurrentHashMap<>();
+    private final AtomicInteger localRunning = new AtomicInteger();
+    //wątki wykonujące lokalne zadania – do przerwania po utracie dzierżawy
+    private final Map<String, Thread> workers = new ConcurrentHashMap<>();
+    //zadania, których dzierżawę straciliśmy (jeszcze przed startem albo w trakcie)
+    private final Set<String> lost = ConcurrentHashMap.newKeySet();
+    private volatile JobHandler handler;
+
+    public DocsJobService(@Qualifier("docsJobExecutor") TaskExecutor executor,
+                          JobJournal journal,
+                          @Value("${docs.jobs.retention-minutes:60}") long retentionMinutes,
+                          @Value("${docs.jobs.sse-timeout-minutes:30}") long sseTimeoutMinutes,
+                          @Value("${docs.cluster.enabled:false}") boolean clustered,
+                          @Value("${docs.cluster.max-jobs-per-node:2}") int maxLocalJobs,
+                          @Value("${docs.jobs.queue:100}") int queueLimit,
+                          @Value("${docs.jobs.event-history:200}") int eventHistory) {
+        this.executor = executor;
+        this.journal = journal;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.sseTimeout = Duration.ofMinutes(sseTimeoutMinutes);
+        this.clustered = clustered;
+        this.maxLocalJobs = Math.max(1, maxLocalJobs);
+        this.queueLimit = queueLimit;
+        this.eventHistory = Math.max(1, eventHistory);
+        if (clustered) {
+            System.out.println("[LEASE] węzeł " + journal.nodeId() + ", maks. zadań: " + this.maxLocalJobs);
+        }
+    }
+
+    public void setHandler(JobHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Rzuca TaskRejectedException, gdy kolejka zadań jest pełna.
+     * Jeśli identyczne zadanie (projekt, rodzaj, poziom, tryb) jeszcze trwa, zwraca właśnie je.
+     */
+    public synchronized DocsJob submit(String projectId, String kind, String level, String mode,
+                                       Integer deadlineSeconds) {
+        purgeFinished();
+
+        List<DocsJob> unfinished = new ArrayList<>();
+        for (DocsJob job : (clustered ? journal.list() : jobs.values())) {
+            if (!job.isFinished()) unfinished.add(job);
+        }
+        for (DocsJob running : unfinished) {
+            if (running.projectId.equals(projectId)
+                    && running.kind.equals(kind)
+                    && running.level.equals(level)
+                    && running.mode.equalsIgnoreCase(mode)) {
+                System.out.println("[JOB] " + running.id + " już trwa – zwracam istniejące zadanie");
+                return running;
+            }
+        }
+
+        DocsJob job = new DocsJob();
+        job.id = UUID.randomUUID().toString().replace("-", "");
+        job.projectId = projectId;
+        job.kind = kind;
+        job.level = level;
+        job.mode = mode;
+        job.deadlineSeconds = deadlineSeconds;
+        job.status = "QUEUED";
+        job.createdAt = Instant.now();
+
+        if (clustered) {
+            if (unfinished.size() >= queueLimit) {
+                throw new TaskRejectedException("Kolejka zadań w klastrze pełna (" + unfinished.size() + ")");
+            }
+            persist(job);
+            if (!startLocally(job)) {
+                System.out.println("[LEASE] " + job.id + " czeka w dzienniku na wolny węzeł");
+            }
+        } else if (!startLocally(job)) {
+            throw new TaskRejectedException("Kolejka zadań pełna");
+        }
+        System.out.println("[JOB] " + job.id + " " + kind + " level=" + level + " projekt=" + projectId);
+        return job;
+    }
+
+    /** null, jeśli zadanie nie istnieje albo należy do innego projektu. */
+    public DocsJob get(String projectId, String jobId) {
+        DocsJob job = jobs.get(jobId);
+        if (clustered && (job == null || "LOST".equals(job.status))) {
+            DocsJob journaled = journal.load(jobId);
+            if (journaled != null) job = journaled;
+        }
+        return (job != null && job.projectId.equals(projectId)) ? job : null;
+    }
+
+    /**
+     * Strumień SSE zdarzeń zadania. lastEventId (nagłówek Last-Event-ID przy wznowieniu)
+     * pomija zdarzenia, które klient już dostał. null, jeśli zadania nie ma.
+     */
+    public SseEmitter subscribe(String projectId, String jobId, Long lastEventId) {
+        DocsJob job = jobs.get(jobId);
+        EventLog log = (job == null || !job.projectId.equals(projectId)) ? null : events.get(jobId);
+        if (log == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        log.subscribe(emitter, lastEventId == null ? 0 : lastEventId);
+        return emitter;
+    }
+
+    /**
+     * Przegląd dziennika (tylko w klastrze): heartbeat własnych zadań, sprzątanie zakończonych,
+     * przejmowanie zadań czekających albo porzuconych przez martwy węzeł, póki jest miejsce.
+     */
+    @Scheduled(fixedDelayString = "${docs.cluster.poll-ms:2000}")
+    public void pollCluster() {
+        if (!clustered) {
+            return;
+        }
+        for (DocsJob job : jobs.values()) {
+            if (!job.isFinished() && !lost.contains(job.id) && !journal.renew(job.id)) {
+                System.err.println("[LEASE] " + job.id + ": dzierżawa utracona (przejęta przez inny węzeł) – przerywam");
+                abandon(job.id);
+            }
+        }
+        synchronized (this) {
+            purgeFinished();
+        }
+        for (DocsJob job : journal.list()) {
+            if (localRunning.get() >= maxLocalJobs) {
+                break;
+            }
+            DocsJob local = jobs.get(job.id);
+            if (job.isFinished() || (local != null && !local.isFinished()) || journal.isAlive(job.id)) {
+                continue;
+            }
+            if ("RUNNING".equals(job.status)) {
+                System.out.println("[LEASE] " + job.id + ": węzeł " + job.node + " nie odnawia dzierżawy – ponawiam");
+            }
+            job.status = "QUEUED";
+            startLocally(job);
+        }
+    }
+
+    //zadanie czekające w puli nawet nie ruszy, trwające dostaje przerwanie (wywołania NLP, sloty FairScheduler);
+    //computeIfPresent i remove w run() idą pod tą samą blokadą mapy, więc nie przerwiemy wątku, który już
+    //wziął inne zadanie
+    private void abandon(String jobId) {
+        lost.add(jobId);
+        workers.computeIfPresent(jobId, (id, worker) -> {
+            worker.interrupt();
+            return worker;
+        });
+    }
+
+    //dzierżawa (w klastrze) + miejsce w lokalnej puli; false = zadanie nie ruszyło tutaj
+    private synchronized boolean startLocally(DocsJob job) {
+        if (clustered && (localRunning.get() >= maxLocalJobs || !journal.claim(job.id))) {
+            return false;
+        }
+        job.node = clustered ? journal.nodeId() : null;
+        EventLog log = new EventLog(eventHistory);
+        jobs.put(job.id, job);
+        events.put(job.id, log);
+        localRunning.incrementAndGet();
+        try {
+            executor.execute(() -> run(job, log));
+            return true;
+        } catch (TaskRejectedException e) {
+            localRunning.decrementAndGet();
+            jobs.remove(job.id);
+            events.remove(job.id);
+            if (clustered) journal.release(job.id);
+            return false;
+        }
+    }
+
+    private void run(DocsJob job, EventLog log) {
+        workers.put(job.id, Thread.currentThread());
+        job.startedAt = Instant.now();
+        job.status = "RUNNING";
+        log.append("status", Map.of("status", job.status));
+        long[] lastPersist = {System.nanoTime()};
+        try {
+            if (lost.contains(job.id)) {
+                throw new InterruptedException("dzierżawa utracona przed startem");
+            }
+            persist(job);
+            job.artifacts = handler.run(job, (type, data) -> {
+                if ("queue".equals(type)) {
+                    job.queuePosition = ((Number) data.get("position")).intValue();
+                } else if ("endpoint".equals(type) || "pdf".equals(type)) {
+                    job.queuePosition = null;
+                    job.queuedMs += ((Number) data.get("queuedMs")).longValue();
+                    if ("endpoint".equals(type)) {
+                        job.endpointsDone = ((Number) data.get("index")).intValue();
+                    }
+                } else if ("plan".equals(type)) {
+                    job.endpointsTotal = ((Number) data.get("total")).intValue();
+                }
+                log.append(type, data);
+                if (clustered && System.nanoTime() - lastPersist[0] >= PERSIST_INTERVAL.toNanos()) {
+                    persist(job);
+                    lastPersist[0] = System.nanoTime();
+                }
+            });
+            job.status = "DONE";
+        } catch (Exception e) {
+            job.message = e.getClass().getSimpleName() + ": " + e.getMessage();
+            job.status = "FAILED";
+            System.err.println("[JOB] " + job.id + " nieudane: " + job.message);
+        } finally {
+            //od tej chwili abandon() nie przerwie już tego wątku; przerwanie, które zdążyło dojść, czyścimy
+            workers.remove(job.id);
+            Thread.interrupted();
+            boolean abandoned = lost.remove(job.id);
+            if (abandoned) {
+                job.status = "LOST";
+                job.message = "Lease lost – the job continues on another node.";
+                System.err.println("[LEASE] " + job.id + ": przerwano lokalne wykonanie");
+            }
+            job.finishedAt = Instant.now();
+            Map<String, Object> last = new LinkedHashMap<>();
+            last.put("status", job.status);
+            last.put("message", job.message);
+            last.put("artifacts", job.artifacts);
+            log.append(job.status.toLowerCase(), last);
+            log.close();
+            localRunning.decrementAndGet();
+            if (clustered) {
+                //po przejęciu przez inny węzeł stan w dzienniku należy już do niego; LOST przy wciąż naszej
+                //dzierżawie (np. błąd zapisu pliku dzierżawy) – tylko ją zwalniamy, zadanie ponowi inny przegląd
+                if (abandoned) {
+                    journal.release(job.id);
+                } else if (journal.isOwner(job.id)) {
+                    persist(job);
+                    journal.release(job.id);
+                } else {
+                    System.err.println("[LEASE] " + job.id + ": dzierżawa nie jest już nasza – nie nadpisuję stanu");
+                }
+            }
+        }
+    }
+
+    private void persist(DocsJob job) {
+        if (!clustered) {
+            return;
+        }
+        try {
+            journal.save(job);
+        } catch (IOException e) {
+            System.err.println("[LEASE] Nie mogę zapisać zadania " + job.id + ": " + e.getMessage());
+        }
+    }
+
+    private void purgeFinished() {
+        Instant limit = Instant.now().minus(retention);
+        jobs.values().removeIf(j -> isExpired(j, limit));
+        events.keySet().retainAll(jobs.keySet());
+        if (clustered) {
+            for (DocsJob job : journal.list()) {
+                if (isExpired(job, limit)) journal.delete(job.id);
+            }
+        }
+    }
+
+    private static boolean isExpired(DocsJob job, Instant limit) {
+        return job.isFinished() && job.finishedAt != null && job.finishedAt.isBefore(limit);
+    }
+
+    // dziennik zdarzeń jednego zadania + podłączeni klienci SSE
+    private static final class EventLog {
+        private record Event(long id, String type, Map<String, Object> data) {}
+
+        //subskrybent, który tyle zdarzeń nie odebrał, jest rozłączany (wróci z Last-Event-ID)
+        private static final int MAX_PENDING = 10_000;
+
+        //etapy – kilka na zadanie, zostają wszystkie; postęp (endpoint, queue) – tylko maxProgress ostatnich
+        private final List<Event> stages = new ArrayList<>();
+        private final ArrayDeque<Event> progress = new ArrayDeque<>();
+        private final int maxProgress;
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private long lastId;
+        private boolean closed;
+
+        EventLog(int maxProgress) {
+            this.maxProgress = maxProgress;
+        }
+
+        //pod blokadą tylko historia i kolejki subskrybentów; wysyłka idzie osobno (Subscriber),
+        //więc wolny klient z pełnym buforem gniazda nie zatrzymuje generowania ani fan-in NLP
+        synchronized void append(String type, Map<String, Object> data) {
+            Event ev = new Event(++lastId, type, data);
+            if ("endpoint".equals(type) || "queue".equals(type)) {
+                if (progress.size() >= maxProgress) {
+                    progress.removeFirst();
+                }
+                progress.addLast(ev);
+            } else {
+                stages.add(ev);
+            }
+            subscribers.removeIf(sub -> !sub.offer(ev));
+        }
+
+        synchronized void subscribe(SseEmitter emitter, long afterId) {
+            Subscriber sub = new Subscriber(emitter);
+            for (Event ev : history()) {
+                if (ev.id() > afterId && !sub.offer(ev)) {
+                    return;
+                }
+            }
+            if (closed) {
+                sub.finish();
+                return;
+            }
+            subscribers.add(sub);
+            emitter.onCompletion(() -> unsubscribe(sub));
+            emitter.onTimeout(() -> unsubscribe(sub));
+        }
+
+        synchronized void close() {
+            closed = true;
+            subscribers.forEach(Subscriber::finish);
+            subscribers.clear();
+        }
+
+        private synchronized void unsubscribe(Subscriber sub) {
+            subscribers.remove(sub);
+        }
+
+        //zachowane zdarzenia w kolejności id (scalenie dwóch posortowanych list)
+        synchronized List<Event> history() {
+            List<Event> all = new ArrayList<>(stages.size() + progress.size());
+            var s = stages.iterator();
+            var p = progress.iterator();
+            Event a = s.hasNext() ? s.next() : null;
+            Event b = p.hasNext() ? p.next() : null;
+            while (a != null || b != null) {
+                if (b == null || (a != null && a.id() < b.id())) {
+                    all.add(a);
+                    a = s.hasNext() ? s.next() : null;
+                } else {
+                    all.add(b);
+                    b = p.hasNext() ? p.next() : null;
+                }
+            }
+            return all;
+        }
+
+        /**
+         * Kolejka zdarzeń jednego klienta SSE. Wysyła ją wątek wirtualny uruchamiany, gdy kolejka
+         * przestaje być pusta; kolejność zdarzeń = kolejność offer. finish() zamyka strumień
+         * po wysłaniu tego, co już czeka.
+         */
+        private static final class Subscriber {
+            private final SseEmitter emitter;
+            private final ArrayDeque<Event> pending = new ArrayDeque<>();
+            private boolean sending;
+            private boolean finishing;
+            private boolean dead;
+
+            Subscriber(SseEmitter emitter) {
+                this.emitter = emitter;
+            }
+
+            /** false – subskrybent odpadł (rozłączony albo zbyt wolny). */
+            boolean offer(Event ev) {
+                boolean overflow = false;
+                synchronized (this) {
+                    if (dead) return false;
+                    if (pending.size() >= MAX_PENDING) {
+                        dead = true;
+                        pending.clear();
+                        overflow = true;
+                    } else {
+                        pending.add(ev);
+                        if (sending) return true;
+                        sending = true;
+                    }
+                }
+                if (overflow) {
+                    emitter.completeWithError(new IOException("Klient SSE nie nadąża – rozłączam"));
+                    return false;
+                }
+                Thread.startVirtualThread(this::drain);
+                return true;
+            }
+
+            void finish() {
+                synchronized (this) {
+                    finishing = true;
+                    if (sending || dead) return;
+                    sending = true;
+                }
+                Thread.startVirtualThread(this::drain);
+            }
+
+            private void drain() {
+                while (true) {
+                    Event ev;
+                    boolean complete = false;
+                    synchronized (this) {
+                        ev = pending.poll();
+                        if (ev == null) {
+                            sending = false;
+                            complete = finishing && !dead;
+                            if (complete) dead = true;
+                        }
+                    }
+                    if (ev == null) {
+                        if (complete) emitter.complete();
+                        return;
+                    }
+                    if (!send(emitter, ev)) {
+                        synchronized (this) {
+                            dead = true;
+                            pending.clear();
+                            sending = false;
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+
+        private static boolean send(SseEmitter emitter, Event ev) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(ev.id()))
+                        .name(ev.type())
+                        .data(ev.data()));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                //klient się rozłączył
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.mariia.javaapi.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Harmonogram dla drogich etapów: wywołań NLP i renderu PDF.
+ * Każdy etap ma ograniczoną liczbę slotów (docs.scheduler.nlp-slots, docs.scheduler.render-slots).
+ * Gdy slotów brakuje, czekający są obsługiwani:
+ *  - najpierw wg klasy priorytetu (INTERACTIVE > DOWNLOAD > BACKGROUND),
+ *  - w obrębie klasy round-robin po projektach – duży projekt z setkami wywołań NLP
+ *    dostaje jedno wywołanie na kolejkę, tak jak mały, więc nie zagładza pozostałych.
+ * Jednostką jest pojedyncze wywołanie (jeden endpoint / jeden render), nie całe generowanie.
+ */
+@Component
+public class FairScheduler {
+
+    private final Gate nlp;
+    private final Gate render;
+
+    public FairScheduler(@Value("${docs.scheduler.nlp-slots:2}") int nlpSlots,
+                         @Value("${docs.scheduler.render-slots:2}") int renderSlots) {
+        this.nlp = new Gate("nlp", nlpSlots);
+        this.render = new Gate("render", renderSlots);
+    }
+
+    public Gate nlp() {
+        return nlp;
+    }
+
+    public Gate render() {
+        return render;
+    }
+
+    /** Stan kolejek z perspektywy projektu (GET /api/projects/{id}/queue). */
+    public Map<String, Object> snapshot(String project) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("nlp", nlp.snapshot(project));
+        m.put("render", render.snapshot(project));
+        return m;
+    }
+
+    /** Zajęty slot; zwolnić przez close(). */
+    public static final class Slot implements AutoCloseable {
+        private final Gate gate;
+        private final long waitedMs;
+        private final int position;
+        private final long acquiredAt = System.nanoTime();
+        private boolean closed;
+
+        private Slot(Gate gate, long waitedMs, int position) {
+            this.gate = gate;
+            this.waitedMs = waitedMs;
+            this.position = position;
+        }
+
+        /** Ile czekaliśmy na slot (0 = od razu). */
+        public long waitedMs() {
+            return waitedMs;
+        }
+
+        /** Pozycja w kolejce w chwili ustawienia się (0 = bez kolejki). */
+        public int position() {
+            return position;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                gate.release(System.nanoTime() - acquiredAt);
+            }
+        }
+    }
+
+    public static final class Gate {
+        private final String name;
+        private final int slots;
+        private int busy;
+        //średni czas zajęcia slotu (EWMA) – do szacowania czasu oczekiwania
+        private double avgHoldMs;
+        private final EnumMap<Priority, LinkedHashMap<String, ArrayDeque<Ticket>>> waiting = new EnumMap<>(Priority.class);
+
+        private Gate(String name, int slots) {
+            this.name = name;
+            this.slots = Math.max(1, slots);
+            for (Priority p : Priority.values()) {
+                waiting.put(p, new LinkedHashMap<>());
+            }
+        }
+
+        /**
+         * Czeka na slot najwyżej maxWait (null = bez limitu). onQueued (może być null) dostaje
+         * pozycję w kolejce, gdy trzeba czekać. Zwraca null, gdy czas minął albo wątek przerwano –
+         * wołający idzie wtedy ścieżką awaryjną.
+         */
+        public Slot acquire(String project, Priority priority, Duration maxWait, IntConsumer onQueued) {
+            Ticket t;
+            synchronized (this) {
+                if (busy < slots && isQueueEmpty()) {
+                    busy++;
+                    return new Slot(this, 0, 0);
+                }
+                t = new Ticket(project, priority);
+                waiting.get(priority).computeIfAbsent(project, k -> new ArrayDeque<>()).add(t);
+                t.position = positionOf(t);
+            }
+            System.out.println("[SCHED] " + name + ": " + project + " (" + priority + ") czeka, pozycja " + t.position);
+            if (onQueued != null) {
+                onQueued.accept(t.position);
+            }
+
+            boolean interrupted = false;
+            try {
+                if (maxWait == null) {
+                    t.latch.await();
+                } else {
+                    t.latch.await(Math.max(0, maxWait.toMillis()), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+
+            synchronized (this) {
+                if (!t.granted) {
+                    remove(t);
+                    if (interrupted) Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return new Slot(this, (System.nanoTime() - t.enqueuedAt) / 1_000_000, t.position);
+        }
+
+        /**
+         * Czekające wywołania projektu z klasy from przechodzą do wyższej klasy to (na koniec kolejki
+         * projektu w tej klasie) – gdy do trwającego generowania dołącza pilniejsze żądanie.
+         * Dotyczy wszystkich czekających wywołań projektu w klasie from, nie tylko jednego przebiegu.
+         */
+        public synchronized void promote(String project, Priority from, Priority to) {
+            if (to.compareTo(from) >= 0) return;
+            ArrayDeque<Ticket> queue = waiting.get(from).remove(project);
+            if (queue == null) return;
+            for (Ticket t : queue) t.priority = to;
+            waiting.get(to).computeIfAbsent(project, k -> new ArrayDeque<>()).addAll(queue);
+            System.out.println("[SCHED] " + name + ": " + project + " " + from + " -> " + to + " (" + queue.size() + " czeka)");
+        }
+
+        private synchronized void release(long heldNanos) {
+            double heldMs = heldNanos / 1_000_000.0;
+            avgHoldMs = (avgHoldMs == 0) ? heldMs : avgHoldMs * 0.8 + heldMs * 0.2;
+            Ticket next = pollNext();
+            if (next == null) {
+                busy--;
+                return;
+            }
+            //slot przechodzi wprost na następnego – busy się nie zmienia
+            next.granted = true;
+            next.latch.countDown();
+        }
+
+        /** Ile wywołań czeka na slot. */
+        public synchronized int queued() {
+            int total = 0;
+            for (LinkedHashMap<String, ArrayDeque<Ticket>> byProject : waiting.values()) {
+                for (ArrayDeque<Ticket> q : byProject.values()) total += q.size();
+            }
+            return total;
+        }
+
+        /** Szacowany czas, zanim nowe wywołanie dostanie slot: kolejka × średni czas zajęcia / liczba slotów. */
+        public synchronized long estimatedWaitMs() {
+            if (busy < slots && isQueueEmpty()) return 0;
+            return Math.round((queued() + 1) * avgHoldMs / slots);
+        }
+
+        private Ticket pollNext() {
+            for (Priority p : Priority.values()) {
+                LinkedHashMap<String, ArrayDeque<Ticket>> byProject = waiting.get(p);
+                Iterator<Map.Entry<String, ArrayDeque<Ticket>>> it = byProject.entrySet().iterator();
+                if (!it.hasNext()) continue;
+                Map.Entry<String, ArrayDeque<Ticket>> first = it.next();
+                ArrayDeque<Ticket> queue = first.getValue();
+                Ticket t = queue.poll();
+                it.remove();
+                if (!queue.isEmpty()) {
+                    byProject.put(first.getKey(), queue); // projekt na koniec kolejki (round-robin)
+                }
+                return t;
+            }
+            return null;
+        }
+
+        private void remove(Ticket t) {
+            LinkedHashMap<String, ArrayDeque<Ticket>> byProject = waiting.get(t.priority);
+            ArrayDeque<Ticket> queue = byProject.get(t.project);
+            if (queue != null) {
+                queue.remove(t);
+                if (queue.isEmpty()) byProject.remove(t.project);
+            }
+        }
+
+        private boolean isQueueEmpty() {
+            for (LinkedHashMap<String, ArrayDeque<Ticket>> byProject : waiting.values()) {
+                if (!byProject.isEmpty()) return false;
+            }
+            return true;
+        }
+
+        //1 = następny do obsługi; wyższe klasy całe przed nami, w swojej klasie kolejne "rundy" round-robin
+        private int positionOf(Ticket t) {
+            int ahead = 0;
+            for (Priority p : Priority.values()) {
+                if (p == t.priority) break;
+                for (ArrayDeque<Ticket> q : waiting.get(p).values()) ahead += q.size();
+            }
+            LinkedHashMap<String, ArrayDeque<Ticket>> byProject = waiting.get(t.priority);
+            int round = indexOf(byProject.get(t.project), t);
+            boolean beforeMine = true;
+            for (Map.Entry<String, ArrayDeque<Ticket>> e : byProject.entrySet()) {
+                int size = e.getValue().size();
+                if (e.getKey().equals(t.project)) {
+                    beforeMine = false;
+                    ahead += round;
+                    continue;
+                }
+                ahead += Math.min(size, round) + ((beforeMine && size > round) ? 1 : 0);
+            }
+            return ahead + 1;
+        }
+
+        private static int indexOf(ArrayDeque<Ticket> queue, Ticket t) {
+            int i = 0;
+            for (Ticket x : queue) {
+                if (x == t) return i;
+                i++;
+            }
+            return i;
+        }
+
+        synchronized Map<String, Object> snapshot(String project) {
+            int total = 0;
+            List<Map<String, Object>> mine = new ArrayList<>();
+            long now = System.nanoTime();
+            for (Priority p : Priority.values()) {
+                for (Map.Entry<String, ArrayDeque<Ticket>> e : waiting.get(p).entrySet()) {
+                    total += e.getValue().size();
+                    if (!e.getKey().equals(project)) continue;
+                    for (Ticket t : e.getValue()) {
+                        Map<String, Object> m = new LinkedHashMap<>();
+                        m.put("priority", p.name());
+                        m.put("position", positionOf(t));
+                        m.put("waitingMs", (now - t.enqueuedAt) / 1_000_000);
+                        mine.add(m);
+                    }
+                }
+            }
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("slots", slots);
+            m.put("busy", busy);
+            m.put("waiting", total);
+            m.put("avgHoldMs", Math.round(avgHoldMs));
+            m.put("project", mine);
+            return m;
+        }
+    }
+
+    private static final class Ticket {
+        final String project;
+        Priority priority;   // pod monitorem Gate (promote)
+        final long enqueuedAt = System.nanoTime();
+        final CountDownLatch latch = new CountDownLatch(1);
+        boolean granted;   // pod monitorem Gate
+        int position;
+
+        Ticket(String project, Priority priority) {
+            this.project = project;
+            this.priority = priority;
+        }
+    }
+}
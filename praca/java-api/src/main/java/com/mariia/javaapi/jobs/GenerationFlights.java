@@ -0,0 +1,60 @@
+package com.mariia.javaapi.jobs;
+
+import com.mariia.javaapi.code.GenerationListener;
+import com.mariia.javaapi.code.GenerationOptions;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Wspólne przebiegi generowania openapi_{level}.yaml (+ PDF) dla wszystkich, którzy go piszą:
+ * żądania HTTP i zadania (kontroler), wzbogacanie w tle po mode=static i generowanie spekulatywne
+ * po uploadzie. Klucz: projekt × poziom × yaml/pdf × tryb (ai/static) – SingleFlight.
+ * Kto przychodzi, gdy przebieg z tym kluczem trwa, dołącza do niego: dostaje jego wynik, jego listener
+ * dalsze zdarzenia postępu, a przebieg – priorytet dołączającego, jeśli wyższy (także wywołania już
+ * czekające w FairScheduler). Żądanie użytkownika nie liczy więc drugi raz tego, co właśnie robi praca
+ * w tle (BACKGROUND), tylko przejmuje ją z własnym priorytetem.
+ */
+@Component
+public class GenerationFlights {
+
+    public static final String YAML = "yaml";
+    public static final String PDF = "pdf";
+    public static final String AI = "ai";
+    public static final String STATIC = "static";
+
+    /** kind: YAML / PDF; mode: AI / STATIC. */
+    public record Key(String id, String level, String kind, String mode) {}
+
+    private final SingleFlight<Key, GenerationOptions, Path> flights = new SingleFlight<>("FLIGHT");
+    private final FairScheduler scheduler;
+
+    public GenerationFlights(FairScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /** Uruchamia work pod kluczem albo dołącza do trwającego przebiegu (z listenerem i priorytetem z options). */
+    public Path run(Key key, GenerationOptions options, SingleFlight.Work<Path> work) throws Exception {
+        return flights.run(key, options, joinWith(key.id(), options.listener, options.priority), work);
+    }
+
+    /** Wynik trwającego przebiegu dla klucza; null, jeśli nic nie trwa (niczego nie uruchamia). */
+    public Path joinIfRunning(Key key, GenerationListener listener, Priority priority) throws Exception {
+        return flights.joinIfRunning(key, joinWith(key.id(), listener, priority));
+    }
+
+    public boolean isRunning(Key key) {
+        return flights.isRunning(key);
+    }
+
+    private Consumer<GenerationOptions> joinWith(String id, GenerationListener listener, Priority priority) {
+        return leader -> {
+            Priority before = leader.join(listener, priority);
+            if (leader.priority != before) {
+                scheduler.nlp().promote(id, before, leader.priority);
+                scheduler.render().promote(id, before, leader.priority);
+            }
+        };
+    }
+}
@@ -0,0 +1,148 @@
+package com.mariia.javaapi.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Nagłówek Idempotency-Key dla POST-ów generujących (from-code, pdf).
+ * Pierwsze żądanie z danym kluczem liczy; powtórzenia (np. retry bramki po timeoucie) dostają:
+ *  - w trakcie – ten sam wynik, gdy tylko będzie gotowy (czekają na tę samą przyszłość),
+ *  - po zakończeniu – zapamiętaną odpowiedź (przez docs.idempotency.ttl-seconds), z nagłówkiem Idempotent-Replayed.
+ * Zapamiętujemy to, co zwróciła praca: status, nagłówki i lekką treść – dla artefaktów ścieżkę
+ * opublikowanego pliku i ETag wygenerowanej wersji, nie bajty. Właściwą odpowiedź przy każdym wysłaniu
+ * (pierwszym i powtórzeniu) składa przekazany Renderer (kontroler: ArtifactResponses – ta sama wersja
+ * pliku albo 409, gdy w międzyczasie ktoś go wygenerował od nowa).
+ * Obliczenie nie jest przerywane, gdy pierwszy klient się rozłączy – po to właśnie jest retry.
+ * Ten sam klucz z innymi parametrami żądania = 422. Błędy i odpowiedzi 5xx nie są zapamiętywane
+ * (retry liczy od nowa). Wpisy są w pamięci węzła; w klastrze duplikaty zadań async i tak
+ * wyłapuje JobJournal.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /** Zapamiętana odpowiedź -> wysyłana (np. ścieżka artefaktu -> plik z ETagiem i Range). */
+    @FunctionalInterface
+    public interface Renderer {
+        ResponseEntity<?> render(ResponseEntity<?> stored) throws Exception;
+    }
+
+    private final Duration ttl;
+    private final int maxEntries;
+    //kolejność wstawiania = od najstarszego; dostęp pod synchronized(entries)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<ResponseEntity<?>> result = new CompletableFuture<>();
+        volatile Instant expiresAt;   // null = jeszcze w trakcie
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    public IdempotencyStore(@Value("${docs.idempotency.ttl-seconds:3600}") long ttlSeconds,
+                            @Value("${docs.idempotency.max-entries:500}") int maxEntries) {
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * key == null – zwykłe wykonanie. fingerprint: parametry żądania, które muszą się zgadzać
+     * przy powtórzeniu (endpoint, projekt, poziom, tryb...). work zwraca odpowiedź do zapamiętania,
+     * render robi z niej wysyłaną.
+     */
+    public Mono<ResponseEntity<?>> execute(String key, String fingerprint, Supplier<Mono<ResponseEntity<?>>> work,
+                                           Renderer render) {
+        if (key == null || key.isBlank()) {
+            return work.get().flatMap(stored -> rendered(render, stored));
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return Mono.just(error(400, HEADER + " too long (max " + MAX_KEY_LENGTH + " characters)."));
+        }
+
+        Entry entry;
+        boolean mine = false;
+        synchronized (entries) {
+            purge(Instant.now());
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(fingerprint);
+                entries.put(key, entry);
+                mine = true;
+            }
+        }
+
+        if (!entry.fingerprint.equals(fingerprint)) {
+            return Mono.just(error(422, HEADER + " " + key + " was already used with different request parameters."));
+        }
+        if (!mine) {
+            System.out.println("[IDEMPOTENCY] powtórzenie " + key + (entry.result.isDone() ? " – zapamiętana odpowiedź" : " – czekam na trwające"));
+            return Mono.fromFuture(entry.result, true).flatMap(stored -> rendered(render, stored)).map(IdempotencyStore::replayed);
+        }
+
+        Entry created = entry;
+        //subskrypcja niezależna od klienta – rozłączenie nie anuluje generowania
+        work.get().toFuture().whenComplete((response, failure) -> {
+            boolean keep = failure == null && response != null && !response.getStatusCode().is5xxServerError();
+            if (keep) {
+                created.expiresAt = Instant.now().plus(ttl);
+            } else {
+                synchronized (entries) {
+                    entries.remove(key, created);
+                }
+            }
+            if (failure != null) created.result.completeExceptionally(failure);
+            else created.result.complete(response);
+        });
+        return Mono.fromFuture(created.result, true).flatMap(stored -> rendered(render, stored));
+    }
+
+    private static Mono<ResponseEntity<?>> rendered(Renderer render, ResponseEntity<?> stored) {
+        return Mono.fromCallable(() -> render.render(stored));
+    }
+
+    //przeterminowane wpisy; ponad limit – najstarsze zakończone (trwających nie ruszamy)
+    private void purge(Instant now) {
+        int excess = entries.size() - maxEntries + 1;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Instant expiresAt = it.next().expiresAt;
+            if (expiresAt == null) continue;
+            if (expiresAt.isBefore(now) || excess > 0) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+
+    private static ResponseEntity<?> replayed(ResponseEntity<?> original) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(original.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(original.getBody(), headers, original.getStatusCode());
+    }
+
+    private static ResponseEntity<?> error(int status, String msg) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(msg.getBytes(StandardCharsets.UTF_8));
+    }
+}
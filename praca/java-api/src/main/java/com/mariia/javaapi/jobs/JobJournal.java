@@ -0,0 +1,220 @@
+package com.mariia.javaapi.jobs;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.mariia.javaapi.uploads.ArtifactFiles;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dziennik zadań na współdzielonym wolumenie uploads (kilka replik java-api, bez brokera):
+ *  - /uploads/.jobs/{jobId}.json  – stan zadania (DocsJob), zapisywany atomowo (ArtifactFiles),
+ *  - /uploads/.jobs/{jobId}.lease – dzierżawa: id węzła, który zadanie wykonuje; mtime = ostatni heartbeat.
+ * Zadanie przejmuje ten węzeł, któremu uda się utworzyć plik dzierżawy (CREATE_NEW jest atomowe).
+ * Dzierżawa bez heartbeatu dłużej niż docs.cluster.lease-seconds jest martwa (węzeł padł) –
+ * inny węzeł może ją przejąć i uruchomić zadanie od nowa.
+ */
+@Component
+public class JobJournal {
+
+    private static final ObjectMapper JSON = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final Path dir;
+    private final String nodeId;
+    private final Duration leaseTtl;
+
+    public JobJournal(@Value("${file.upload.base:/uploads}") String baseDir,
+                      @Value("${docs.cluster.node-id:}") String nodeId,
+                      @Value("${docs.cluster.lease-seconds:30}") long leaseSeconds) {
+        this.dir = Path.of(baseDir).resolve(".jobs");
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId.trim();
+        this.leaseTtl = Duration.ofSeconds(leaseSeconds);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public void save(DocsJob job) throws IOException {
+        ArtifactFiles.write(dir.resolve(job.id + ".json"), JSON.writeValueAsBytes(job));
+    }
+
+    /** null, jeśli zadania nie ma w dzienniku. */
+    public DocsJob load(String jobId) {
+        Path file = dir.resolve(jobId + ".json");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return JSON.readValue(file.toFile(), DocsJob.class);
+        } catch (IOException e) {
+            System.err.println("[LEASE] Nie mogę odczytać " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Wszystkie zadania w dzienniku, od najstarszego. */
+    public List<DocsJob> list() {
+        List<DocsJob> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return out;
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path f : ds) {
+                String name = f.getFileName().toString();
+                DocsJob job = load(name.substring(0, name.length() - ".json".length()));
+                if (job != null) out.add(job);
+            }
+        } catch (IOException e) {
+            System.err.println("[LEASE] Nie mogę wylistować " + dir + ": " + e.getMessage());
+        }
+        out.sort(Comparator.comparing(j -> j.createdAt, Comparator.nullsLast(Comparator.naturalOrder())));
+        return out;
+    }
+
+    /**
+     * Próba przejęcia zadania: nowa dzierżawa albo przejęcie martwej.
+     * true = zadanie jest teraz nasze.
+     */
+    public boolean claim(String jobId) {
+        Path lease = leaseFile(jobId);
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(lease, nodeId, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return takeOver(jobId, lease);
+        } catch (IOException e) {
+            System.err.println("[LEASE] Nie mogę utworzyć dzierżawy " + lease + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    //martwą dzierżawę przenosimy (ATOMIC_MOVE) – źródło znika po pierwszym przeniesieniu,
+    //więc z kilku węzłów robiących to naraz wygrywa dokładnie jeden
+    private boolean takeOver(String jobId, Path lease) {
+        if (isAlive(jobId)) {
+            return false;
+        }
+        Path tomb = dir.resolve(jobId + ".lease." + nodeId + ".stale");
+        try {
+            Files.move(lease, tomb, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            return false;
+        }
+        try {
+            if (!isStale(Files.getLastModifiedTime(tomb))) {
+                //właściciel zdążył odnowić dzierżawę – oddajemy ją, ale bez nadpisywania: link() się nie uda,
+                //jeśli w międzyczasie ktoś założył nową (CREATE_NEW) – wtedy obowiązuje tamta
+                restore(tomb, lease);
+                return false;
+            }
+            Files.deleteIfExists(tomb);
+            Files.writeString(lease, nodeId, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            System.out.println("[LEASE] przejmuję zadanie " + jobId + " po martwej dzierżawie");
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void restore(Path tomb, Path lease) {
+        try {
+            Files.createLink(lease, tomb);
+        } catch (FileAlreadyExistsException e) {
+            //nowa dzierżawa innego węzła wygrywa; dotychczasowy właściciel zobaczy to przy odnowieniu
+        } catch (IOException | UnsupportedOperationException e) {
+            //bez dzierżawy zadanie wróci do puli po docs.cluster.lease-seconds
+            System.err.println("[LEASE] Nie mogę przywrócić dzierżawy " + lease + ": " + e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(tomb);
+        } catch (IOException e) {
+            System.err.println("[LEASE] Nie mogę usunąć " + tomb + ": " + e.getMessage());
+        }
+    }
+
+    /** Heartbeat; false, jeśli dzierżawa nie jest już nasza (przejęta przez inny węzeł). */
+    public boolean renew(String jobId) {
+        if (!isOwner(jobId)) {
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(leaseFile(jobId), FileTime.from(Instant.now()));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public boolean isOwner(String jobId) {
+        try {
+            return nodeId.equals(Files.readString(leaseFile(jobId), StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Czy ktokolwiek trzyma żywą dzierżawę zadania. */
+    public boolean isAlive(String jobId) {
+        try {
+            return !isStale(Files.getLastModifiedTime(leaseFile(jobId)));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void release(String jobId) {
+        try {
+            if (isOwner(jobId)) Files.deleteIfExists(leaseFile(jobId));
+        } catch (IOException e) {
+            System.err.println("[LEASE] Nie mogę zwolnić dzierżawy " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    public void delete(String jobId) {
+        try {
+            Files.deleteIfExists(dir.resolve(jobId + ".json"));
+            Files.deleteIfExists(leaseFile(jobId));
+        } catch (IOException e) {
+            System.err.println("[LEASE] Nie mogę usunąć zadania " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isStale(FileTime heartbeat) {
+        return heartbeat.toInstant().plus(leaseTtl).isBefore(Instant.now());
+    }
+
+    private Path leaseFile(String jobId) {
+        return dir.resolve(jobId + ".lease");
+    }
+
+    //w dockerze hostname = id kontenera; pid odróżnia kilka instancji na jednym hoście
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = UUID.randomUUID().toString().substring(0, 8);
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
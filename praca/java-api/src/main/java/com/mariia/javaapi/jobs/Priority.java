@@ -0,0 +1,10 @@
+package com.mariia.javaapi.jobs;
+
+/**
+ * Klasy priorytetu w FairScheduler – kolejność deklaracji = kolejność obsługi.
+ */
+public enum Priority {
+    INTERACTIVE,   // podgląd inline (GET /docs/pdf), edytor
+    DOWNLOAD,      // POST /docs/from-code, /docs/pdf (także async)
+    BACKGROUND     // wzbogacanie w tle, generowanie spekulatywne
+}
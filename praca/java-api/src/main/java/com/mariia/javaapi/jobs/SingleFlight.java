@@ -0,0 +1,82 @@
+package com.mariia.javaapi.jobs;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Single-flight: równoległe wywołania z tym samym kluczem dzielą jedno obliczenie.
+ * Pierwszy wywołujący liczy w swoim wątku, pozostali czekają na jego wynik (albo wyjątek).
+ * Po zakończeniu klucz jest zwalniany – kolejne wywołanie liczy od nowa.
+ * Pierwszy może udostępnić kontekst przebiegu (C), przez który dołączający przekazują mu
+ * swoje potrzeby – np. odbiorcę zdarzeń postępu i priorytet.
+ */
+public class SingleFlight<K, C, V> {
+
+    @FunctionalInterface
+    public interface Work<V> {
+        V call() throws Exception;
+    }
+
+    private record Call<C, V>(C context, CompletableFuture<V> result) {}
+
+    private final String name;
+    private final ConcurrentHashMap<K, Call<C, V>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V run(K key, Work<V> work) throws Exception {
+        return run(key, null, null, work);
+    }
+
+    /** onJoin (może być null) dostaje kontekst trwającego przebiegu, zanim zaczniemy na niego czekać. */
+    public V run(K key, C context, Consumer<C> onJoin, Work<V> work) throws Exception {
+        Call<C, V> mine = new Call<>(context, new CompletableFuture<>());
+        Call<C, V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return join(key, existing, onJoin);
+        }
+        try {
+            V value = work.call();
+            mine.result().complete(value);
+            return value;
+        } catch (Throwable t) {
+            mine.result().completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Wynik trwającego przebiegu dla klucza; null, jeśli nic nie trwa (niczego nie uruchamia). */
+    public V joinIfRunning(K key, Consumer<C> onJoin) throws Exception {
+        Call<C, V> existing = inFlight.get(key);
+        return (existing == null) ? null : join(key, existing, onJoin);
+    }
+
+    public boolean isRunning(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    private V join(K key, Call<C, V> call, Consumer<C> onJoin) throws Exception {
+        System.out.println("[" + name + "] dołączam do trwającego: " + key);
+        if (onJoin != null && call.context() != null) {
+            onJoin.accept(call.context());
+        }
+        return await(call.result());
+    }
+
+    private static <V> V await(CompletableFuture<V> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.mariia.javaapi.uploads;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Silne ETagi artefaktów (YAML, PDF): SHA-256 treści (pierwsze 128 bitów, hex, w cudzysłowie).
+ * Hash liczymy raz na wersję pliku – wersję rozpoznajemy po mtime + rozmiarze + fileKey (inode),
+ * a każda publikacja (ArtifactFiles) to nowy inode. Powtórne GET-y i 304 nie czytają więc
+ * wielomegabajtowego PDF-a. Ta sama treść po regeneracji = ten sam ETag (przeglądarka dostaje 304).
+ */
+@Component
+public class ArtifactETags {
+
+    private record Stamp(FileTime modified, long size, Object fileKey) {}
+
+    private record Entry(Stamp stamp, String etag) {}
+
+    private final Map<Path, Entry> cache;
+
+    public ArtifactETags(@Value("${docs.etag.cache-size:256}") int maxFiles) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                return size() > maxFiles;
+            }
+        };
+    }
+
+    public String of(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        String cached = cached(key, stampOf(Files.readAttributes(file, BasicFileAttributes.class)));
+        if (cached != null) {
+            return cached;
+        }
+        try (ArtifactFiles.Opened version = ArtifactFiles.open(file)) {
+            return of(file, version);
+        }
+    }
+
+    /**
+     * ETag otwartej wersji artefaktu (ArtifactFiles.open): sygnatura z jej atrybutów, a hash – jeśli
+     * potrzebny – z tego samego kanału, więc ETag opisuje dokładnie to, co zostanie wysłane.
+     */
+    public String of(Path artifact, ArtifactFiles.Opened version) throws IOException {
+        Path key = artifact.toAbsolutePath().normalize();
+        Stamp stamp = stampOf(version.attributes());
+        String cached = cached(key, stamp);
+        if (cached != null) {
+            return cached;
+        }
+        String etag = hash(version.newInputStream());
+        synchronized (cache) {
+            cache.put(key, new Entry(stamp, etag));
+        }
+        return etag;
+    }
+
+    private String cached(Path key, Stamp stamp) {
+        synchronized (cache) {
+            Entry e = cache.get(key);
+            return (e != null && e.stamp().equals(stamp)) ? e.etag() : null;
+        }
+    }
+
+    private static Stamp stampOf(BasicFileAttributes attrs) {
+        return new Stamp(attrs.lastModifiedTime(), attrs.size(), Objects.requireNonNullElse(attrs.fileKey(), ""));
+    }
+
+    /**
+     * If-None-Match pasuje do etag (porównanie słabe, jak wymaga RFC 9110 dla If-None-Match):
+     * lista ETagów po przecinku albo "*".
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static String hash(InputStream content) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(content, md)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return "\"" + HexFormat.of().formatHex(Arrays.copyOf(md.digest(), 16)) + "\"";
+    }
+}
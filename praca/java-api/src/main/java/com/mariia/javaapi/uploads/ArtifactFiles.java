@@ -0,0 +1,196 @@
+package com.mariia.javaapi.uploads;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Publikacja artefaktów (YAML, PDF, odciski, pliki zadań): treść powstaje w pliku tymczasowym
+ * obok docelowego (.{nazwa}.{losowe}.tmp), a potem jest podmieniana jednym ATOMIC_MOVE.
+ * Czytelnik widzi starą albo nową wersję w całości – nigdy pół zapisanego pliku – i nie
+ * potrzebuje do tego żadnej blokady. Kto czyta dłużej (wysyłka, ETag), bierze open(): otwarty
+ * plik to jedna, stała wersja – podmiana w trakcie go nie dotyczy.
+ */
+public final class ArtifactFiles {
+
+    @FunctionalInterface
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private ArtifactFiles() {
+    }
+
+    public static void writeString(Path target, String content) throws IOException {
+        write(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void write(Path target, byte[] bytes) throws IOException {
+        publish(target, out -> out.write(bytes));
+    }
+
+    /** openapi_advanced.yaml -> openapi_advanced.yaml.gz */
+    public static Path gzipSibling(Path target) {
+        return target.resolveSibling(target.getFileName() + ".gz");
+    }
+
+    /**
+     * Otwiera bieżącą wersję pliku razem z jej atrybutami (mtime, rozmiar, fileKey = i-węzeł).
+     * Atrybuty czytamy przed i po otwarciu – różne znaczą, że publish trafił pomiędzy, i nie wiemy,
+     * którą wersję otworzyliśmy; wtedy otwieramy jeszcze raz.
+     */
+    public static Opened open(Path file) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+                if (sameVersion(before, after) && channel.size() == after.size()) {
+                    return new Opened(channel, after);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+            if (attempt == 5) {
+                throw new IOException("Plik podmieniany w trakcie otwierania: " + file);
+            }
+        }
+    }
+
+    private static boolean sameVersion(BasicFileAttributes a, BasicFileAttributes b) {
+        return Objects.equals(a.fileKey(), b.fileKey())
+                && a.lastModifiedTime().equals(b.lastModifiedTime())
+                && a.size() == b.size();
+    }
+
+    public static void publish(Path target, Writer writer) throws IOException {
+        try (Staged staged = stage(target, writer)) {
+            staged.publish();
+        }
+    }
+
+    /**
+     * Pierwsza połowa publish: treść zapisana do pliku tymczasowego, bez podmiany.
+     * Dzięki temu długie pisanie może iść poza blokadą, a pod blokadą tylko publish().
+     * close() usuwa plik tymczasowy, jeśli do podmiany nie doszło.
+     */
+    public static Staged stage(Path target, Writer writer) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve("." + target.getFileName() + "." + UUID.randomUUID().toString().substring(0, 8) + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                writer.writeTo(out);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return new Staged(tmp, target);
+    }
+
+    public static final class Staged implements AutoCloseable {
+        private final Path tmp;
+        private final Path target;
+
+        private Staged(Path tmp, Path target) {
+            this.tmp = tmp;
+            this.target = target;
+        }
+
+        public void publish() throws IOException {
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                //system plików bez atomowego rename – przynajmniej nie piszemy w miejscu
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        /**
+         * Wariant gzip ({nazwa}.gz) skompresowany z tej samej, jeszcze nieopublikowanej treści.
+         * Publikować po oryginale: ArtifactResponses serwuje .gz tylko, gdy nie jest starszy od oryginału.
+         */
+        public Staged gzip() throws IOException {
+            return stage(gzipSibling(target), out -> {
+                try (OutputStream gz = new GZIPOutputStream(out, 64 * 1024) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+                    Files.copy(tmp, gz);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Otwarta wersja artefaktu; czyta się ją strumieniami z newInputStream(), zamyka close(). */
+    public record Opened(FileChannel channel, BasicFileAttributes attributes) implements Closeable {
+
+        public long size() {
+            return attributes.size();
+        }
+
+        /**
+         * Strumień od początku pliku z odczytami pozycyjnymi – kilka strumieni (np. kolejne zakresy
+         * multipart/byteranges) nie przesuwa sobie nawzajem pozycji; zamknięcie strumienia nie zamyka kanału.
+         */
+        public InputStream newInputStream() {
+            return new InputStream() {
+                private long position;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return (read(one, 0, 1) < 0) ? -1 : one[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    int n = channel.read(ByteBuffer.wrap(b, off, len), position);
+                    if (n > 0) {
+                        position += n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) {
+                    long skipped = Math.max(0, Math.min(n, size() - position));
+                    position += skipped;
+                    return skipped;
+                }
+
+                @Override
+                public int available() {
+                    return (int) Math.min(Integer.MAX_VALUE, Math.max(0, size() - position));
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mariia.javaapi.uploads;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Paskowane (striped) blokady odczyt/zapis per projekt: stała tablica docs.locks.stripes blokad,
+ * projekt trafia do paska wg hasha id – bez mapy blokad rosnącej z liczbą projektów.
+ *
+ * Pojedynczy plik nie wymaga blokady (ArtifactFiles podmienia go atomowo). Blokada chroni
+ * spójność kilku plików naraz: zapis specyfikacji razem z odciskami (write) i odczyt tej pary
+ * przy generowaniu przyrostowym albo kopiowaniu do nowej wersji projektu (read).
+ * Sekcje krytyczne to same podmiany/odczyty plików, nie całe generowanie.
+ */
+@Component
+public class ProjectLocks {
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T call() throws Exception;
+    }
+
+    private final ReadWriteLock[] stripes;
+
+    public ProjectLocks(@Value("${docs.locks.stripes:64}") int stripes) {
+        this.stripes = new ReadWriteLock[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public <T> T read(Path projectDir, Work<T> work) throws Exception {
+        var lock = forProject(projectDir).readLock();
+        lock.lock();
+        try {
+            return work.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T write(Path projectDir, Work<T> work) throws Exception {
+        var lock = forProject(projectDir).writeLock();
+        lock.lock();
+        try {
+            return work.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //katalog projektu = /uploads/{id}
+    private ReadWriteLock forProject(Path projectDir) {
+        String id = projectDir.toAbsolutePath().normalize().getFileName().toString();
+        return stripes[Math.floorMod(id.hashCode(), stripes.length)];
+    }
+}
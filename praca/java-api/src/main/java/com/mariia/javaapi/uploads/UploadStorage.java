@@ -5,8 +5,12 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Trzyma i rozwiązuje ścieżki do plików przesłanych projektów:
@@ -19,9 +23,11 @@ import java.nio.file.Path;
 public class UploadStorage {
 
     private final Path base;
+    private final ProjectLocks locks;
 
-    public UploadStorage(@Value("${file.upload.base:/uploads}") String baseDir) {
+    public UploadStorage(@Value("${file.upload.base:/uploads}") String baseDir, ProjectLocks locks) {
         this.base = Path.of(baseDir);
+        this.locks = locks;
     }
 
     /** Katalog projektu: /uploads/{id} */
@@ -78,6 +84,35 @@ public class UploadStorage {
         return id;
     }
 
+    /**
+     * Kopiuje wygenerowane specyfikacje (openapi_{level}.yaml + odciski endpointów)
+     * z poprzedniej wersji projektu, żeby kolejne generowanie było przyrostowe.
+     * Wersje edytowane ręcznie (_edited) i PDF-y są pomijane.
+     */
+    public int copyGeneratedSpecs(String fromId, String toId) throws Exception {
+        Path from = resolveProjectDir(fromId);
+        Path to = resolveProjectDir(toId);
+        if (!Files.isDirectory(from)) {
+            return 0;
+        }
+        Files.createDirectories(to);
+        //spec + odciski muszą być z tej samej wersji – blokada odczytu źródła na czas kopiowania
+        return locks.read(from, () -> {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(from, "openapi_*.{yaml,json,gz}")) {
+                for (Path f : ds) {
+                    if (!f.getFileName().toString().contains("_edited")) files.add(f);
+                }
+            }
+            //warianty .gz po oryginałach – starszy od oryginału .gz nie jest serwowany
+            files.sort(Comparator.comparing((Path f) -> f.getFileName().toString().endsWith(".gz")));
+            for (Path f : files) {
+                ArtifactFiles.publish(to.resolve(f.getFileName().toString()), out -> Files.copy(f, out));
+            }
+            return files.size();
+        });
+    }
+
     // --- pomocnicze, opcjonalne ---
 
     /** Upewnia się, że katalog projektu istnieje. */
@@ -87,8 +122,7 @@ public class UploadStorage {
 
     /** Zapisuje podaną treść do pliku (tworzy katalogi, jeśli trzeba). */
     public void writeString(Path file, String content) throws IOException {
-        Files.createDirectories(file.getParent());
-        Files.writeString(file, content, StandardCharsets.UTF_8);
+        ArtifactFiles.writeString(file, content);
     }
 
     /**
@@ -113,8 +147,6 @@ public class UploadStorage {
             return;
         }
 
-        Path nameMeta = base.resolve(id + ".name");
-        Files.createDirectories(nameMeta.getParent());
-        Files.writeString(nameMeta, baseName, StandardCharsets.UTF_8);
+        ArtifactFiles.writeString(base.resolve(id + ".name"), baseName);
     }
 }
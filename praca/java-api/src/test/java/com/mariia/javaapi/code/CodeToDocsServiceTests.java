@@ -0,0 +1,193 @@
+package com.mariia.javaapi.code;
+
+import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.code.nlp.NlpDescribeClient;
+import com.mariia.javaapi.code.nlp.NlpDescribeResult;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.Priority;
+import com.mariia.javaapi.uploads.ProjectLocks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CodeToDocsServiceTests {
+
+	private static final String CONTROLLER = """
+			package demo;
+
+			import org.springframework.web.bind.annotation.*;
+
+			@RestController
+			@RequestMapping("/api/books")
+			public class BookController {
+
+			    /** Zwraca książkę po id. */
+			    @GetMapping("/{id}")
+			    public BookDto get(@PathVariable Long id) { return null; }
+
+			    /** Dodaje książkę. */
+			    @PostMapping
+			    public BookDto create(@RequestBody BookDto book) { return book; }
+			}
+			""";
+	private static final String DTO = """
+			package demo;
+
+			public class BookDto {
+			    private Long id;
+			    private String title;
+			}
+			""";
+
+	@TempDir
+	Path projectDir;
+
+	private final NlpDescribeClient nlp = mock(NlpDescribeClient.class);
+	private final FairScheduler scheduler = new FairScheduler(1, 1);
+	private CodeToDocsService service;
+	private Path yaml;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		write("BookController.java", CONTROLLER);
+		write("BookDto.java", DTO);
+		yaml = projectDir.resolve("openapi_advanced.yaml");
+		when(nlp.profile()).thenReturn("ollama|model-a|{}|1");
+		when(nlp.describe(any(), anyString(), any())).thenAnswer(call -> described());
+		service = new CodeToDocsService(nlp, new ProjectAnalysisCache(4), false, scheduler,
+				new ProjectLocks(4), false);
+	}
+
+	@Test
+	void unchangedEndpointsAreReusedWithoutNlp() throws Exception {
+		generate();
+		verify(nlp, times(2)).describe(any(), anyString(), any());
+		String first = Files.readString(yaml, StandardCharsets.UTF_8);
+
+		generate();
+
+		verify(nlp, times(2)).describe(any(), anyString(), any());
+		assertThat(Files.readString(yaml, StandardCharsets.UTF_8)).isEqualTo(first);
+		assertThat(EndpointFingerprints.load(yaml))
+				.containsEntry(EndpointFingerprints.PROFILE_KEY, "ollama|model-a|{}|1")
+				.containsKeys("GET /api/books/{id}", "POST /api/books");
+	}
+
+	@Test
+	void changedEndpointIsDescribedAgain() throws Exception {
+		generate();
+		write("BookController.java", CONTROLLER.replace("Zwraca książkę po id.", "Zwraca jedną książkę."));
+
+		generate();
+
+		verify(nlp, times(3)).describe(any(), anyString(), any());
+	}
+
+	@Test
+	void otherModelOrPromptsInvalidateDescriptions() throws Exception {
+		generate();
+		when(nlp.profile()).thenReturn("ollama|model-b|{}|1");
+
+		generate();
+
+		verify(nlp, times(4)).describe(any(), anyString(), any());
+		assertThat(EndpointFingerprints.load(yaml)).containsEntry(EndpointFingerprints.PROFILE_KEY, "ollama|model-b|{}|1");
+	}
+
+	@Test
+	void unreachableNlpKeepsThePreviousProfile() throws Exception {
+		generate();
+		when(nlp.profile()).thenReturn(null);
+
+		generate();
+
+		verify(nlp, times(2)).describe(any(), anyString(), any());
+		assertThat(EndpointFingerprints.load(yaml)).containsEntry(EndpointFingerprints.PROFILE_KEY, "ollama|model-a|{}|1");
+	}
+
+	@Test
+	void staticFallbacksAreNotRemembered() throws Exception {
+		when(nlp.describe(any(), anyString(), any())).thenReturn(new NlpDescribeResult());
+		generate();
+
+		assertThat(EndpointFingerprints.load(yaml)).containsOnlyKeys(EndpointFingerprints.PROFILE_KEY);
+	}
+
+	@Test
+	void budgetIsSplitAcrossRemainingEndpoints() throws Exception {
+		GenerationOptions options = GenerationOptions.defaults();
+		options.deadline = Instant.now().plusSeconds(60);
+
+		generate(options);
+
+		ArgumentCaptor<Duration> budgets = ArgumentCaptor.forClass(Duration.class);
+		verify(nlp, times(2)).describe(any(), anyString(), budgets.capture());
+		// pierwszy dostaje połowę z ~60 s, drugi całą resztę
+		assertThat(budgets.getAllValues().get(0)).isBetween(Duration.ofSeconds(25), Duration.ofSeconds(30));
+		assertThat(budgets.getAllValues().get(1)).isBetween(Duration.ofSeconds(50), Duration.ofSeconds(60));
+	}
+
+	@Test
+	void passedDeadlineFallsBackToStaticDescriptions() throws Exception {
+		GenerationOptions options = GenerationOptions.defaults();
+		options.deadline = Instant.now().plusSeconds(2);
+
+		generate(options);
+
+		verify(nlp, never()).describe(any(), anyString(), any());
+		assertThat(Files.readString(yaml, StandardCharsets.UTF_8)).contains("/api/books/{id}", "/api/books");
+		assertThat(EndpointFingerprints.load(yaml)).containsOnlyKeys(EndpointFingerprints.PROFILE_KEY);
+	}
+
+	@Test
+	void deadlineSpentInTheNlpQueueFallsBackToStatic() throws Exception {
+		GenerationOptions options = GenerationOptions.defaults();
+		options.deadline = Instant.now().plusMillis(3_300);
+
+		try (FairScheduler.Slot busy = scheduler.nlp().acquire("other", Priority.INTERACTIVE, null, null)) {
+			generate(options);
+		}
+
+		verify(nlp, never()).describe(any(), anyString(), any());
+		assertThat(yaml).exists();
+	}
+
+	// endpointy parsowane od nowa – test zmienia źródła między przebiegami
+	private void generate() throws Exception {
+		generate(GenerationOptions.defaults());
+	}
+
+	private void generate(GenerationOptions options) throws Exception {
+		List<EndpointIR> endpoints = new ProjectAnalysisCache(4).endpoints(projectDir);
+		service.generateYamlFromCode(endpoints, "Books", "advanced", yaml, projectDir, options);
+	}
+
+	private void write(String name, String source) throws Exception {
+		Files.writeString(projectDir.resolve(name), source, StandardCharsets.UTF_8);
+	}
+
+	private static NlpDescribeResult described() {
+		NlpDescribeResult r = new NlpDescribeResult();
+		r.summary = "Opis AI";
+		r.mediumDescription = "Średni opis wygenerowany przez model.";
+		r.notes = List.of();
+		return r;
+	}
+}
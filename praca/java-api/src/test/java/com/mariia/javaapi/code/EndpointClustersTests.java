@@ -0,0 +1,123 @@
+package com.mariia.javaapi.code;
+
+import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.code.ir.ParamIR;
+import com.mariia.javaapi.code.ir.ReturnIR;
+import com.mariia.javaapi.code.nlp.NlpDescribeResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EndpointClustersTests {
+
+	@Test
+	void lookAlikeEndpointsShareOneRepresentative() {
+		List<EndpointIR> eps = List.of(
+				get("/api/books/{id}", "BookController_getBook", "BookDto"),
+				get("/api/users/{id}", "UserController_getUser", "UserDto"),
+				get("/api/orders/{id}", "OrderController_getOrder", "OrderDto"));
+
+		EndpointClusters clusters = EndpointClusters.of(eps, all(3));
+
+		assertThat(clusters.representativeOf(0)).isEqualTo(-1);
+		assertThat(clusters.representativeOf(1)).isZero();
+		assertThat(clusters.representativeOf(2)).isZero();
+		assertThat(clusters.savedCalls()).isEqualTo(2);
+		assertThat(clusters.clusterCount()).isEqualTo(1);
+	}
+
+	@Test
+	void differentShapesAreNotClustered() {
+		EndpointIR list = get("/api/users", "UserController_list", "List<UserDto>");
+		list.params = new ArrayList<>();
+		List<EndpointIR> eps = List.of(
+				get("/api/books/{id}", "BookController_getBook", "BookDto"),
+				list,
+				get("/api/books/{id}/cover", "BookController_cover", "BookDto"),
+				get("/api/users/{id}", "UserController_count", "Long"));
+
+		assertThat(EndpointClusters.of(eps, all(4)).savedCalls()).isZero();
+	}
+
+	@Test
+	void documentedOrNonCandidateEndpointsStayAlone() {
+		EndpointIR documented = get("/api/users/{id}", "UserController_getUser", "UserDto");
+		documented.javadoc = "Zwraca użytkownika razem z rolami.";
+		List<EndpointIR> eps = List.of(
+				get("/api/books/{id}", "BookController_getBook", "BookDto"),
+				documented,
+				get("/api/orders/{id}", "OrderController_getOrder", "OrderDto"));
+
+		EndpointClusters clusters = EndpointClusters.of(eps, new boolean[]{true, true, false});
+
+		assertThat(clusters.savedCalls()).isZero();
+	}
+
+	@Test
+	void fillRewritesNamesForTheMember() {
+		EndpointIR rep = get("/api/books/{id}", "BookController_getBook", "BookDto");
+		EndpointIR member = get("/api/users/{id}", "UserController_getUser", "UserDto");
+		NlpDescribeResult template = new NlpDescribeResult();
+		template.summary = "Pobiera książkę (Book)";
+		template.mediumDescription = "GET /api/books/{id} zwraca BookDto; books to zasób, a bookshelf nie.";
+		template.returnDoc = "BookDto z danymi";
+		NlpDescribeResult.ParamDoc id = new NlpDescribeResult.ParamDoc();
+		id.name = "id";
+		id.doc = "Id obiektu Book";
+		template.paramDocs.add(id);
+		template.notes = List.of("Wywołuje BookController_getBook");
+		template.examples = new NlpDescribeResult.Examples();
+		template.examples.requests = List.of(NlpDescribeResult.RequestExample.of("curl http://localhost/api/books/1"));
+		template.examples.response = new NlpDescribeResult.ResponseExample();
+		template.examples.response.status = 200;
+		template.examples.response.body = "{\"title\": \"Lalka\"}";
+
+		NlpDescribeResult r = EndpointClusters.fill(template, rep, member);
+
+		assertThat(r.summary).isEqualTo("Pobiera książkę (User)");
+		assertThat(r.mediumDescription).isEqualTo("GET /api/users/{id} zwraca UserDto; users to zasób, a bookshelf nie.");
+		assertThat(r.returnDoc).isEqualTo("UserDto z danymi");
+		assertThat(r.paramDocs).extracting(p -> p.doc).containsExactly("Id obiektu User");
+		assertThat(r.notes).containsExactly("Wywołuje UserController_getUser");
+		assertThat(r.examples.requests).extracting(q -> q.curl).containsExactly("curl http://localhost/api/users/1");
+		assertThat(r.examples.response.status).isEqualTo(200);
+		// przykład body dotyczył innego DTO – nie przenosimy go
+		assertThat(r.examples.response.body).isNull();
+		assertThat(template.summary).isEqualTo("Pobiera książkę (Book)");
+	}
+
+	@Test
+	void typeKindsIgnoreWrappersAndDtoNames() {
+		assertThat(EndpointClusters.typeKind("ResponseEntity<List<BookDto>>")).isEqualTo("list<dto>");
+		assertThat(EndpointClusters.typeKind("Optional<Long>")).isEqualTo("num");
+		assertThat(EndpointClusters.typeKind("Page<OrderDto>")).isEqualTo("page<dto>");
+		assertThat(EndpointClusters.typeKind("ResponseEntity<Void>")).isEqualTo("void");
+		assertThat(EndpointClusters.typeKind("java.util.UUID")).isEqualTo("str");
+	}
+
+	private static EndpointIR get(String path, String operationId, String returns) {
+		EndpointIR ep = new EndpointIR();
+		ep.http = "GET";
+		ep.path = path;
+		ep.operationId = operationId;
+		ParamIR id = new ParamIR();
+		id.name = "id";
+		id.in = "path";
+		id.type = "Long";
+		id.required = true;
+		ep.params = new ArrayList<>(List.of(id));
+		ep.returns = new ReturnIR();
+		ep.returns.type = returns;
+		return ep;
+	}
+
+	private static boolean[] all(int n) {
+		boolean[] b = new boolean[n];
+		Arrays.fill(b, true);
+		return b;
+	}
+}
@@ -0,0 +1,113 @@
+package com.mariia.javaapi.code;
+
+import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.code.ir.ParamIR;
+import com.mariia.javaapi.code.ir.ReturnIR;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EndpointFingerprintsTests {
+
+	private static final String PROFILE = "ollama|llama3.1|{}|1";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void sameInputGivesSameFingerprint() {
+		Map<String, Schema> schemas = schemas();
+
+		String a = new EndpointFingerprints(schemas, PROFILE).of(endpoint(), "advanced", false);
+		String b = new EndpointFingerprints(schemas(), PROFILE).of(endpoint(), "advanced", false);
+
+		assertThat(a).isEqualTo(b).hasSize(64);
+	}
+
+	@Test
+	void levelPublicFlagAndIrChangeTheFingerprint() {
+		EndpointFingerprints fp = new EndpointFingerprints(schemas(), PROFILE);
+		String base = fp.of(endpoint(), "advanced", false);
+		EndpointIR changed = endpoint();
+		changed.javadoc = "Zwraca książkę po id (nowy opis).";
+
+		assertThat(fp.of(endpoint(), "beginner", false)).isNotEqualTo(base);
+		assertThat(fp.of(endpoint(), "advanced", true)).isNotEqualTo(base);
+		assertThat(fp.of(changed, "advanced", false)).isNotEqualTo(base);
+	}
+
+	@Test
+	void describeProfileChangesTheFingerprint() {
+		String base = new EndpointFingerprints(schemas(), PROFILE).of(endpoint(), "advanced", false);
+
+		assertThat(new EndpointFingerprints(schemas(), "ollama|llama3.2|{}|1").of(endpoint(), "advanced", false))
+				.isNotEqualTo(base);
+		assertThat(new EndpointFingerprints(schemas(), "ollama|llama3.1|{}|2").of(endpoint(), "advanced", false))
+				.isNotEqualTo(base);
+	}
+
+	@Test
+	void referencedSchemasCountTransitively() {
+		String base = new EndpointFingerprints(schemas(), PROFILE).of(endpoint(), "advanced", false);
+
+		Map<String, Schema> nested = schemas();
+		nested.get("AuthorDto").addProperty("bio", new StringSchema());
+		Map<String, Schema> unrelated = schemas();
+		unrelated.put("OrderDto", new ObjectSchema().addProperty("id", new StringSchema()));
+
+		assertThat(new EndpointFingerprints(nested, PROFILE).of(endpoint(), "advanced", false)).isNotEqualTo(base);
+		assertThat(new EndpointFingerprints(unrelated, PROFILE).of(endpoint(), "advanced", false)).isEqualTo(base);
+	}
+
+	@Test
+	void fingerprintsAreStoredNextToTheYaml() throws Exception {
+		Path yaml = dir.resolve("openapi_advanced.yaml");
+		Map<String, String> fingerprints = new LinkedHashMap<>();
+		fingerprints.put(EndpointFingerprints.PROFILE_KEY, PROFILE);
+		fingerprints.put(EndpointFingerprints.key(endpoint()), "abc");
+
+		EndpointFingerprints.save(yaml, fingerprints);
+
+		assertThat(EndpointFingerprints.fileFor(yaml).getFileName().toString()).isEqualTo("openapi_advanced.fingerprints.json");
+		// bez specyfikacji odciski nic nie znaczą
+		assertThat(EndpointFingerprints.load(yaml)).isEmpty();
+		Files.writeString(yaml, "openapi: 3.0.1\n");
+		assertThat(EndpointFingerprints.load(yaml)).containsExactlyEntriesOf(fingerprints);
+	}
+
+	private static EndpointIR endpoint() {
+		EndpointIR ep = new EndpointIR();
+		ep.http = "GET";
+		ep.path = "/api/books/{id}";
+		ep.operationId = "getBook";
+		ep.javadoc = "Zwraca książkę po id.";
+		ParamIR id = new ParamIR();
+		id.name = "id";
+		id.in = "path";
+		id.type = "Long";
+		id.required = true;
+		ep.params = List.of(id);
+		ep.returns = new ReturnIR();
+		ep.returns.type = "ResponseEntity<BookDto>";
+		return ep;
+	}
+
+	private static Map<String, Schema> schemas() {
+		Map<String, Schema> schemas = new LinkedHashMap<>();
+		schemas.put("BookDto", new ObjectSchema()
+				.addProperty("title", new StringSchema())
+				.addProperty("author", new Schema<>().$ref("#/components/schemas/AuthorDto")));
+		schemas.put("AuthorDto", new ObjectSchema().addProperty("name", new StringSchema()));
+		return schemas;
+	}
+}
@@ -0,0 +1,152 @@
+package com.mariia.javaapi.code;
+
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.IntegerSchema;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaCanonicalizerTests {
+
+	private static final String REF = "#/components/schemas/";
+
+	@Test
+	void singleUseInlineObjectStaysInline() {
+		OpenAPI api = spec(Map.of("/users", op(pageOf("User"))));
+
+		assertThat(SchemaCanonicalizer.canonicalize(api, null, Set.of())).isZero();
+		assertThat(responseSchema(api, "/users").get$ref()).isNull();
+		assertThat(api.getComponents().getSchemas()).isEmpty();
+	}
+
+	@Test
+	void repeatedInlineObjectBecomesOneComponent() {
+		OpenAPI api = spec(Map.of("/users", op(pageOf("User")), "/admins", op(pageOf("User"))));
+
+		assertThat(SchemaCanonicalizer.canonicalize(api, null, Set.of())).isEqualTo(1);
+		assertThat(responseSchema(api, "/users").get$ref()).isEqualTo(REF + "PageUser");
+		assertThat(responseSchema(api, "/admins").get$ref()).isEqualTo(REF + "PageUser");
+		assertThat(api.getComponents().getSchemas()).containsOnlyKeys("PageUser");
+	}
+
+	@Test
+	void repeatedInlineObjectMatchesExistingComponent() {
+		OpenAPI api = spec(Map.of("/users", op(pageOf("User"))));
+		Schema<?> existing = pageOf("User");
+		api.getComponents().getSchemas().put("PageUser", existing);
+
+		SchemaCanonicalizer.canonicalize(api, null, Set.of());
+
+		assertThat(responseSchema(api, "/users").get$ref()).isEqualTo(REF + "PageUser");
+		assertThat(api.getComponents().getSchemas()).containsOnlyKeys("PageUser");
+	}
+
+	@Test
+	void nameTakenByOtherStructureGetsSuffixFromStructureHash() {
+		String first = hoistedNameWithTakenBase(List.of("/a", "/b", "/c"));
+		String second = hoistedNameWithTakenBase(List.of("/c", "/b", "/a"));
+
+		assertThat(first).matches("PageUser_[0-9a-f]{8}").isEqualTo(second);
+	}
+
+	@Test
+	void canonicalizeIsIdempotent() {
+		OpenAPI api = spec(Map.of("/users", op(pageOf("User")), "/admins", op(pageOf("User"))));
+		SchemaCanonicalizer.canonicalize(api, null, Set.of());
+		String once = Json.pretty(api);
+
+		assertThat(SchemaCanonicalizer.canonicalize(api, null, Set.of())).isZero();
+		assertThat(Json.pretty(api)).isEqualTo(once);
+	}
+
+	@Test
+	void reusedOperationGetsMissingComponentFromPrevious() {
+		OpenAPI previous = spec(Map.of());
+		previous.getComponents().getSchemas().put("PageUser", pageOf("User"));
+		Operation reused = op(new Schema<>().$ref(REF + "PageUser"));
+		OpenAPI api = spec(Map.of("/users", reused));
+
+		SchemaCanonicalizer.canonicalize(api, previous, Set.of(reused));
+
+		assertThat(reused.getResponses().get("200").getContent().get("application/json").getSchema().get$ref())
+				.isEqualTo(REF + "PageUser");
+		assertThat(api.getComponents().getSchemas()).containsKey("PageUser");
+	}
+
+	@Test
+	void reusedOperationKeepsPreviousStructureWhenNameNowMeansSomethingElse() {
+		Schema<?> oldPage = pageOf("User");
+		OpenAPI previous = spec(Map.of());
+		previous.getComponents().getSchemas().put("PageUser", oldPage);
+		String oldJson = Json.pretty(oldPage);
+
+		Operation reused = op(new Schema<>().$ref(REF + "PageUser"));
+		OpenAPI api = spec(Map.of("/users", reused));
+		Schema<?> newPage = pageOf("User").addProperty("last", new StringSchema());
+		api.getComponents().getSchemas().put("PageUser", newPage);
+
+		SchemaCanonicalizer.canonicalize(api, previous, Set.of(reused));
+
+		String ref = reused.getResponses().get("200").getContent().get("application/json").getSchema().get$ref();
+		assertThat(ref).matches(REF + "PageUser_[0-9a-f]{8}");
+		Map<String, Schema> schemas = api.getComponents().getSchemas();
+		assertThat(Json.pretty(schemas.get(ref.substring(REF.length())))).isEqualTo(oldJson);
+		assertThat(schemas.get("PageUser")).isSameAs(newPage);
+	}
+
+	// "PageUser" zajęte przez inną strukturę; Page«User» w trzech operacjach, w podanej kolejności
+	private static String hoistedNameWithTakenBase(List<String> order) {
+		Map<String, Operation> ops = new LinkedHashMap<>();
+		order.forEach(path -> ops.put(path, op(pageOf("User"))));
+		OpenAPI api = spec(ops);
+		api.getComponents().getSchemas().put("PageUser", new ObjectSchema().addProperty("other", new StringSchema()));
+
+		SchemaCanonicalizer.canonicalize(api, null, Set.of());
+
+		String ref = responseSchema(api, order.get(0)).get$ref();
+		assertThat(ref).startsWith(REF);
+		return ref.substring(REF.length());
+	}
+
+	private static Schema<?> pageOf(String item) {
+		Schema<?> page = new ObjectSchema()
+				.addProperty("content", new ArraySchema().items(new Schema<>().$ref(REF + item)))
+				.addProperty("totalPages", new IntegerSchema());
+		page.setName("Page«" + item + "»");
+		return page;
+	}
+
+	private static Operation op(Schema<?> response) {
+		return new Operation().responses(new ApiResponses().addApiResponse("200", new ApiResponse()
+				.description("OK")
+				.content(new Content().addMediaType("application/json", new MediaType().schema(response)))));
+	}
+
+	private static OpenAPI spec(Map<String, Operation> gets) {
+		Paths paths = new Paths();
+		new LinkedHashMap<>(gets).forEach((path, op) -> paths.addPathItem(path, new PathItem().get(op)));
+		return new OpenAPI().paths(paths).components(new Components().schemas(new LinkedHashMap<>()));
+	}
+
+	private static Schema<?> responseSchema(OpenAPI api, String path) {
+		return api.getPaths().get(path).getGet().getResponses().get("200").getContent().get("application/json").getSchema();
+	}
+}
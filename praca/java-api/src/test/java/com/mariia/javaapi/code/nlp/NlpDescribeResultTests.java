@@ -0,0 +1,77 @@
+package com.mariia.javaapi.code.nlp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NlpDescribeResultTests {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+	private static final ObjectMapper CBOR = CBORMapper.builder().findAndAddModules().build();
+
+	@Test
+	void fullResponseIsTyped() throws Exception {
+		NlpDescribeResult r = JSON.readValue("""
+				{"summary": "Pobiera książkę",
+				 "mediumDescription": "Zwraca książkę o podanym id.",
+				 "paramDocs": [{"name": "id", "doc": "Id książki"}],
+				 "notes": ["wymaga tokenu"],
+				 "examples": {"requests": [{"curl": "curl /api/books/1"}],
+				              "response": {"status": 200, "body": {"id": 1}}}}
+				""", NlpDescribeResult.class);
+
+		assertThat(r.summary).isEqualTo("Pobiera książkę");
+		assertThat(r.paramDocs).extracting(p -> p.name).containsExactly("id");
+		assertThat(r.notes).containsExactly("wymaga tokenu");
+		assertThat(r.examples.requests).extracting(e -> e.curl).containsExactly("curl /api/books/1");
+		assertThat(r.examples.response.status).isEqualTo(200);
+		assertThat(r.examples.response.body).isEqualTo(Map.of("id", 1));
+	}
+
+	@Test
+	void oddShapesFromTheModelAreTolerated() throws Exception {
+		NlpDescribeResult r = JSON.readValue("""
+				{"summary": "S", "unknownField": {"x": 1},
+				 "notes": ["tekst", {"k": "v"}, 3, null],
+				 "examples": {"requests": ["curl -X GET /api/books"],
+				              "response": {"status": " 201 ", "body": "ok"}}}
+				""", NlpDescribeResult.class);
+
+		assertThat(r.summary).isEqualTo("S");
+		assertThat(r.notes).containsExactly("tekst", "{k=v}", "3", "");
+		assertThat(r.examples.requests).extracting(e -> e.curl).containsExactly("curl -X GET /api/books");
+		assertThat(r.examples.response.status).isEqualTo(201);
+	}
+
+	@Test
+	void invalidFieldsAreSkippedNotFatal() throws Exception {
+		NlpDescribeResult r = JSON.readValue("""
+				{"mediumDescription": "M", "notes": "nie lista",
+				 "examples": {"response": {"status": "OK"}}}
+				""", NlpDescribeResult.class);
+
+		assertThat(r.mediumDescription).isEqualTo("M");
+		assertThat(r.notes).isNull();
+		assertThat(r.examples.response.status).isNull();
+	}
+
+	@Test
+	void cborDecodesLikeJson() throws Exception {
+		Map<String, Object> body = Map.of(
+				"summary", "S",
+				"mediumDescription", "M",
+				"notes", List.of("a", 1),
+				"examples", Map.of("response", Map.of("status", "204")));
+
+		NlpDescribeResult r = CBOR.readValue(CBOR.writeValueAsBytes(body), NlpDescribeResult.class);
+
+		assertThat(r.mediumDescription).isEqualTo("M");
+		assertThat(r.notes).containsExactly("a", "1");
+		assertThat(r.examples.response.status).isEqualTo(204);
+	}
+}
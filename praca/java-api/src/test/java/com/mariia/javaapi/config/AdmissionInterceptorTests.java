@@ -0,0 +1,124 @@
+package com.mariia.javaapi.config;
+
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.Priority;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionInterceptorTests {
+
+	private final FairScheduler scheduler = new FairScheduler(1, 1);
+
+	@Test
+	void burstThenRetryAfter() throws Exception {
+		AdmissionInterceptor admission = new AdmissionInterceptor(scheduler, true, 2, 1, 300);
+
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+		MockHttpServletResponse rejected = admit(admission, "10.0.0.1");
+
+		assertThat(rejected.getStatus()).isEqualTo(429);
+		// 1 token na minutę
+		assertThat(Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(1L, 60L);
+		assertThat(admit(admission, "10.0.0.2").getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void tokensRefillOverTime() throws Exception {
+		AdmissionInterceptor admission = new AdmissionInterceptor(scheduler, true, 1, 60_000, 300);
+
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+		Thread.sleep(20);
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void bulkChargeTakesTheRestAsDebt() throws Exception {
+		AdmissionInterceptor admission = new AdmissionInterceptor(scheduler, true, 5, 1, 300);
+		MockHttpServletRequest bulk = request("10.0.0.1");
+
+		assertThat(admission.preHandle(bulk, new MockHttpServletResponse(), null)).isTrue();
+		assertThat(admission.chargeExtra(bulk, 9)).isZero();
+
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(429);
+	}
+
+	@Test
+	void rejectedBulkChargeRefundsTheRequestToken() throws Exception {
+		AdmissionInterceptor admission = new AdmissionInterceptor(scheduler, true, 2, 1, 300);
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+		MockHttpServletRequest bulk = request("10.0.0.1");
+		assertThat(admission.preHandle(bulk, new MockHttpServletResponse(), null)).isTrue();
+
+		assertThat(admission.chargeExtra(bulk, 3)).isPositive();
+
+		// odrzucona partia nic nie kosztuje – token z preHandle wrócił do kubełka
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(429);
+	}
+
+	@Test
+	void longNlpQueueIsShed() throws Exception {
+		AdmissionInterceptor admission = new AdmissionInterceptor(scheduler, true, 5, 20, 0);
+		FairScheduler.Slot holder = scheduler.nlp().acquire("p", Priority.DOWNLOAD, null, null);
+		Thread waiter = new Thread(() -> {
+			try (FairScheduler.Slot slot = scheduler.nlp().acquire("q", Priority.DOWNLOAD, null, null)) {
+				// tylko stoi w kolejce
+			}
+		});
+		waiter.start();
+		while (scheduler.nlp().queued() == 0) {
+			Thread.sleep(1);
+		}
+
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(429);
+
+		holder.close();
+		waiter.join(5_000);
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void disabledAdmitsEverything() throws Exception {
+		AdmissionInterceptor admission = new AdmissionInterceptor(scheduler, false, 1, 1, 0);
+		MockHttpServletRequest bulk = request("10.0.0.1");
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+		}
+		assertThat(admission.chargeExtra(bulk, 100)).isZero();
+	}
+
+	@Test
+	void pdfRangeRequestsAreFree() throws Exception {
+		AdmissionInterceptor admission = new AdmissionInterceptor(scheduler, true, 1, 1, 300);
+		assertThat(admit(admission, "10.0.0.1").getStatus()).isEqualTo(200);
+
+		for (int i = 0; i < 3; i++) {
+			MockHttpServletRequest range = new MockHttpServletRequest("GET", "/api/projects/p1/docs/pdf");
+			range.addHeader("X-Real-IP", "10.0.0.1");
+			range.addHeader(HttpHeaders.RANGE, "bytes=0-1023");
+			assertThat(admission.preHandle(range, new MockHttpServletResponse(), null)).isTrue();
+		}
+		MockHttpServletRequest editable = new MockHttpServletRequest("GET", "/api/projects/p1/docs/editable");
+		editable.addHeader("X-Real-IP", "10.0.0.1");
+		editable.addHeader(HttpHeaders.RANGE, "bytes=0-1023");
+		assertThat(admission.preHandle(editable, new MockHttpServletResponse(), null)).isFalse();
+	}
+
+	private static MockHttpServletResponse admit(AdmissionInterceptor admission, String ip) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		admission.preHandle(request(ip), response, null);
+		return response;
+	}
+
+	private static MockHttpServletRequest request(String ip) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/projects/p1/docs/from-code");
+		request.addHeader("X-Real-IP", ip);
+		return request;
+	}
+}
@@ -0,0 +1,119 @@
+package com.mariia.javaapi.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.mariia.javaapi.code.nlp.NlpDescribeClient;
+import com.mariia.javaapi.code.nlp.NlpDescribeResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpClientsTests {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+	private static final ObjectMapper CBOR = CBORMapper.builder().findAndAddModules().build();
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final Map<String, Object> DESCRIBED = Map.of("summary", "S", "mediumDescription", "M");
+
+	private HttpServer server;
+	private volatile String contentType;
+	private volatile String acceptEncoding;
+	private volatile Map<String, Object> received;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/describe", this::describe);
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void jsonByDefault() {
+		NlpDescribeResult r = client("json", false).describe(Map.of("symbol", "getBook"), "advanced", TIMEOUT);
+
+		assertThat(contentType).startsWith("application/json");
+		assertThat(received).containsEntry("symbol", "getBook");
+		assertThat(r.mediumDescription).isEqualTo("M");
+		assertThat(acceptEncoding).isNull();
+	}
+
+	@Test
+	void cborBothWays() {
+		NlpDescribeResult r = client("cbor", false).describe(Map.of("symbol", "getBook"), "advanced", TIMEOUT);
+
+		assertThat(contentType).isEqualTo("application/cbor");
+		assertThat(received).containsEntry("symbol", "getBook");
+		assertThat(r.summary).isEqualTo("S");
+		assertThat(r.mediumDescription).isEqualTo("M");
+	}
+
+	@Test
+	void gzipOnlyWhenEnabled() {
+		NlpDescribeResult r = client("cbor", true).describe(Map.of("symbol", "getBook"), "advanced", TIMEOUT);
+
+		assertThat(acceptEncoding).contains("gzip");
+		assertThat(r.mediumDescription).isEqualTo("M");
+	}
+
+	@Test
+	void failureGivesEmptyResult() {
+		server.removeContext("/describe");
+		server.createContext("/describe", exchange -> {
+			exchange.sendResponseHeaders(502, -1);
+			exchange.close();
+		});
+
+		NlpDescribeResult r = client("json", false).describe(Map.of(), "advanced", TIMEOUT);
+
+		assertThat(r.mediumDescription).isNull();
+	}
+
+	private NlpDescribeClient client(String transport, boolean compression) {
+		String url = "http://127.0.0.1:" + server.getAddress().getPort();
+		return new NlpDescribeClient(new HttpClients().nlpClient(url, compression), transport);
+	}
+
+	// python-nlp w miniaturze: format żądania wg Content-Type, odpowiedzi wg Accept, gzip wg Accept-Encoding
+	private void describe(HttpExchange exchange) throws IOException {
+		contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+		acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		byte[] body = exchange.getRequestBody().readAllBytes();
+		boolean cborIn = "application/cbor".equals(contentType);
+		received = (cborIn ? CBOR : JSON).readValue(body, new TypeReference<Map<String, Object>>() {});
+
+		String accept = exchange.getRequestHeaders().getFirst("Accept");
+		boolean cborOut = accept != null && accept.contains("application/cbor");
+		byte[] out = (cborOut ? CBOR : JSON).writeValueAsBytes(DESCRIBED);
+		exchange.getResponseHeaders().set("Content-Type", cborOut ? "application/cbor" : "application/json");
+		if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+			ByteArrayOutputStream gz = new ByteArrayOutputStream();
+			try (GZIPOutputStream zip = new GZIPOutputStream(gz)) {
+				zip.write(out);
+			}
+			out = gz.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.sendResponseHeaders(200, out.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(out);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.mariia.javaapi.controller;
+
+import com.mariia.javaapi.uploads.ArtifactETags;
+import com.mariia.javaapi.uploads.ArtifactFiles;
+import com.mariia.javaapi.uploads.ProjectLocks;
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ArtifactResponsesTests {
+
+	private static final String YAML = "openapi: 3.0.1\ninfo:\n  title: Test-API\n";
+
+	@TempDir
+	Path dir;
+
+	private Path file;
+	private ArtifactResponses artifacts;
+	private MockMvc mvc;
+
+	@RestController
+	static class FileController {
+		private final ArtifactResponses artifacts;
+		private final Path file;
+
+		FileController(ArtifactResponses artifacts, Path file) {
+			this.artifacts = artifacts;
+			this.file = file;
+		}
+
+		@GetMapping("/file")
+		ResponseEntity<?> file(HttpServletRequest request) throws Exception {
+			return artifacts.attachment(file, "doc.yaml", "text/yaml", request);
+		}
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		file = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(file, YAML);
+		artifacts = new ArtifactResponses(new ArtifactETags(16), new ProjectLocks(4), "private, no-cache");
+		mvc = MockMvcBuilders.standaloneSetup(new FileController(artifacts, file)).build();
+	}
+
+	@Test
+	void wholeFileWithStrongETag() throws Exception {
+		mvc.perform(get("/file"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, etagOf(file)))
+				.andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"doc.yaml\""))
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, YAML.length()))
+				.andExpect(content().string(YAML));
+	}
+
+	@Test
+	void matchingIfNoneMatchGives304() throws Exception {
+		mvc.perform(get("/file").header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etagOf(file)))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etagOf(file)))
+				.andExpect(content().bytes(new byte[0]));
+	}
+
+	@Test
+	void rangeGives206() throws Exception {
+		mvc.perform(get("/file").header(HttpHeaders.RANGE, "bytes=0-6"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-6/" + YAML.length()))
+				.andExpect(content().string("openapi"));
+	}
+
+	@Test
+	void rangeOutsideFileGives416() throws Exception {
+		mvc.perform(get("/file").header(HttpHeaders.RANGE, "bytes=1000-2000"))
+				.andExpect(status().isRequestedRangeNotSatisfiable());
+	}
+
+	@Test
+	void ifRangeWithCurrentETagKeepsRange() throws Exception {
+		mvc.perform(get("/file").header(HttpHeaders.RANGE, "bytes=0-6").header(HttpHeaders.IF_RANGE, etagOf(file)))
+				.andExpect(status().isPartialContent())
+				.andExpect(content().string("openapi"));
+	}
+
+	@Test
+	void ifRangeWithOldETagSendsWholeFile() throws Exception {
+		mvc.perform(get("/file").header(HttpHeaders.RANGE, "bytes=0-6").header(HttpHeaders.IF_RANGE, "\"old\""))
+				.andExpect(status().isOk())
+				.andExpect(content().string(YAML));
+	}
+
+	@Test
+	void freshGzipVariantIsSentToGzipClients() throws Exception {
+		byte[] gz = writeGzipSibling();
+
+		mvc.perform(get("/file").header(HttpHeaders.ACCEPT_ENCODING, "br, gzip"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+				.andExpect(header().string(HttpHeaders.ETAG, etagOf(ArtifactFiles.gzipSibling(file))))
+				.andExpect(content().bytes(gz));
+	}
+
+	@Test
+	void gzipVariantIsSkippedWhenRefusedStaleOrRanged() throws Exception {
+		writeGzipSibling();
+
+		mvc.perform(get("/file").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *"))
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andExpect(content().string(YAML));
+		mvc.perform(get("/file").header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.RANGE, "bytes=0-6"))
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andExpect(content().string("openapi"));
+
+		Files.setLastModifiedTime(ArtifactFiles.gzipSibling(file), FileTime.from(Instant.now().minusSeconds(60)));
+		mvc.perform(get("/file").header(HttpHeaders.ACCEPT_ENCODING, "*"))
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andExpect(content().string(YAML));
+	}
+
+	@Test
+	void bodyComesFromTheVersionOpenedForTheRequest() throws Exception {
+		String etag = etagOf(file);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+		ResponseEntity<?> response = artifacts.attachment(file, "doc.yaml", "text/yaml", request);
+
+		// publikacja nowej wersji między nagłówkami a wysyłką treści nie zmienia tego, co idzie do klienta
+		ArtifactFiles.writeString(file, YAML + "paths: {}\n");
+
+		assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+		assertThat(response.getHeaders().getContentLength()).isEqualTo(YAML.length());
+		Resource body = (Resource) response.getBody();
+		try (InputStream in = body.getInputStream()) {
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(YAML);
+		}
+		assertThat(etagOf(file)).isNotEqualTo(etag);
+
+		// koniec żądania zamyka uchwyt
+		artifacts.requestDestroyed(new ServletRequestEvent(new MockServletContext(), request));
+		assertThatThrownBy(() -> body.getInputStream().read()).isInstanceOf(ClosedChannelException.class);
+	}
+
+	@Test
+	void notModifiedKeepsNoHandleOpen() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etagOf(file));
+
+		assertThat(artifacts.attachment(file, "doc.yaml", "text/yaml", request).getStatusCode().value()).isEqualTo(304);
+		assertThat(request.getAttributeNames().hasMoreElements()).isFalse();
+	}
+
+	@Test
+	void expectedVersionIsServedAndLaterVersionRefused() throws Exception {
+		String generated = artifacts.etag(file);
+
+		MockHttpServletRequest first = new MockHttpServletRequest("GET", "/file");
+		assertThat(artifacts.attachment(file, "doc.yaml", "text/yaml", first, generated).getStatusCode().value()).isEqualTo(200);
+
+		// ktoś wygenerował specyfikację od nowa – powtórzenie nie może wysłać cudzej wersji
+		ArtifactFiles.writeString(file, YAML + "paths: {}\n");
+		MockHttpServletRequest replay = new MockHttpServletRequest("GET", "/file");
+		assertThat(artifacts.attachment(file, "doc.yaml", "text/yaml", replay, generated).getStatusCode().value()).isEqualTo(409);
+		assertThat(replay.getAttributeNames().hasMoreElements()).isFalse();
+	}
+
+	@Test
+	void expectedVersionIsCheckedAgainstTheOriginalForGzip() throws Exception {
+		writeGzipSibling();
+		String generated = artifacts.etag(file);
+
+		MockHttpServletRequest gzip = new MockHttpServletRequest("GET", "/file");
+		gzip.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		ResponseEntity<?> response = artifacts.attachment(file, "doc.yaml", "text/yaml", gzip, generated);
+		assertThat(response.getStatusCode().value()).isEqualTo(200);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+
+		MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/file");
+		stale.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		assertThat(artifacts.attachment(file, "doc.yaml", "text/yaml", stale, "\"old\"").getStatusCode().value()).isEqualTo(409);
+	}
+
+	private byte[] writeGzipSibling() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+			gz.write(YAML.getBytes(StandardCharsets.UTF_8));
+		}
+		Path sibling = ArtifactFiles.gzipSibling(file);
+		Files.write(sibling, bytes.toByteArray());
+		Files.setLastModifiedTime(sibling, FileTime.from(Instant.now().plusSeconds(1)));
+		return bytes.toByteArray();
+	}
+
+	private static String etagOf(Path path) throws Exception {
+		return new ArtifactETags(1).of(path);
+	}
+}
@@ -0,0 +1,95 @@
+package com.mariia.javaapi.controller;
+
+import com.mariia.javaapi.jobs.DocsJob;
+import com.mariia.javaapi.jobs.DocsJobService;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.JobJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class DocsJobsControllerTests {
+
+	private static final int ENDPOINTS = 50;
+	private static final Pattern EVENT = Pattern.compile("id:(\\d+)\\nevent:(\\w+)\\ndata:(.*)\\n");
+
+	private DocsJobService jobs;
+	private MockMvc mvc;
+	private DocsJob job;
+
+	@BeforeEach
+	void setUp() {
+		jobs = new DocsJobService(new SyncTaskExecutor(), mock(JobJournal.class), 60, 1, false, 2, 100, 10);
+		jobs.setHandler((job, progress) -> {
+			progress.onEvent("plan", Map.of("total", ENDPOINTS));
+			for (int i = 1; i <= ENDPOINTS; i++) {
+				progress.onEvent("endpoint", Map.of("index", i, "total", ENDPOINTS, "endpoint", "GET /books/" + i,
+						"operationId", "getBook" + i, "source", "ai", "queuedMs", 0));
+			}
+			progress.onEvent("yaml", Map.of("file", "openapi_advanced.yaml"));
+			return Map.of();
+		});
+		// SyncTaskExecutor – zadanie kończy się jeszcze w submit
+		job = jobs.submit("p1", "yaml", "advanced", "ai", null);
+		mvc = MockMvcBuilders.standaloneSetup(new DocsJobsController(jobs, new FairScheduler(1, 1))).build();
+	}
+
+	@Test
+	void historyKeepsStagesAndOnlyRecentEndpoints() throws Exception {
+		List<String[]> events = events(null);
+
+		assertThat(events).extracting(e -> e[1]).containsExactly(
+				"status", "plan", "endpoint", "endpoint", "endpoint", "endpoint", "endpoint",
+				"endpoint", "endpoint", "endpoint", "endpoint", "endpoint", "yaml", "done");
+		// ostatnie 10 z 50 endpointów, identyfikatory bez przerw w kolejności
+		assertThat(events.get(2)[2]).contains("\"index\":41");
+		assertThat(events.get(11)[2]).contains("\"index\":50");
+		assertThat(events).extracting(e -> Long.parseLong(e[0])).isSorted();
+		assertThat(events.get(events.size() - 1)[0]).isEqualTo(String.valueOf(ENDPOINTS + 4));
+	}
+
+	@Test
+	void endpointEventsCarryOnlyIdentityAndStatus() throws Exception {
+		String data = events(null).get(2)[2];
+
+		assertThat(data).contains("\"operationId\":\"getBook41\"", "\"source\":\"ai\"");
+		assertThat(data).doesNotContain("\"operation\"", "responses");
+	}
+
+	@Test
+	void resumeSkipsWhatTheClientAlreadyHas() throws Exception {
+		List<String[]> events = events((long) ENDPOINTS);
+
+		assertThat(events).extracting(e -> e[1]).containsExactly("endpoint", "endpoint", "yaml", "done");
+		assertThat(events.get(0)[0]).isEqualTo(String.valueOf(ENDPOINTS + 1));
+	}
+
+	private List<String[]> events(Long lastEventId) throws Exception {
+		var get = get("/api/projects/p1/jobs/" + job.id + "/events");
+		if (lastEventId != null) {
+			get.header("Last-Event-ID", lastEventId);
+		}
+		MvcResult result = mvc.perform(get).andExpect(request().asyncStarted()).andReturn();
+		result.getAsyncResult(5_000);
+		Matcher m = EVENT.matcher(result.getResponse().getContentAsString());
+		List<String[]> events = new ArrayList<>();
+		while (m.find()) {
+			events.add(new String[]{m.group(1), m.group(2), m.group(3)});
+		}
+		return events;
+	}
+}
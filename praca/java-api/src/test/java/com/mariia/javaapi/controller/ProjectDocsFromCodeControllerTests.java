@@ -0,0 +1,125 @@
+package com.mariia.javaapi.controller;
+
+import com.mariia.javaapi.code.CodeToDocsService;
+import com.mariia.javaapi.code.ProjectAnalysisCache;
+import com.mariia.javaapi.config.AdmissionInterceptor;
+import com.mariia.javaapi.docs.DocsEnrichmentService;
+import com.mariia.javaapi.docs.EditableDocsService;
+import com.mariia.javaapi.docs.PdfDocService;
+import com.mariia.javaapi.jobs.DocsJobService;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.GenerationFlights;
+import com.mariia.javaapi.jobs.IdempotencyStore;
+import com.mariia.javaapi.uploads.ArtifactETags;
+import com.mariia.javaapi.uploads.ArtifactFiles;
+import com.mariia.javaapi.uploads.ProjectLocks;
+import com.mariia.javaapi.uploads.UploadStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProjectDocsFromCodeControllerTests {
+
+	private static final String YAML = "openapi: 3.0.1\n";
+	private static final String JSON = "{\"openapi\":\"3.0.1\"}";
+
+	@TempDir
+	Path projectDir;
+
+	private final CodeToDocsService code2docs = mock(CodeToDocsService.class);
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ArtifactFiles.writeString(projectDir.resolve("openapi_advanced.yaml"), YAML);
+		ArtifactFiles.writeString(projectDir.resolve("openapi_advanced.json"), JSON);
+		UploadStorage storage = mock(UploadStorage.class);
+		when(storage.resolveProjectDir("p1")).thenReturn(projectDir);
+		when(storage.getProjectName("p1")).thenReturn("Shop");
+
+		FairScheduler scheduler = new FairScheduler(1, 1);
+		ProjectDocsFromCodeController controller = new ProjectDocsFromCodeController(
+				storage, code2docs, mock(ProjectAnalysisCache.class), mock(PdfDocService.class),
+				mock(EditableDocsService.class), mock(DocsEnrichmentService.class), mock(DocsJobService.class),
+				scheduler, new GenerationFlights(scheduler), new IdempotencyStore(3600, 100),
+				new ArtifactResponses(new ArtifactETags(16), new ProjectLocks(4), "private, no-cache"),
+				mock(AdmissionInterceptor.class), 0, 20, 4, 200);
+		mvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@Test
+	void jsonOnlyWhenPreferredOverYaml() throws Exception {
+		expectJson(yaml("application/json"));
+		expectJson(yaml("application/json, text/yaml;q=0.5"));
+		expectJson(yaml("application/yaml;q=0.1, application/json;q=0.2"));
+	}
+
+	@Test
+	void yamlStaysTheDefault() throws Exception {
+		expectYaml(mvc.perform(get("/api/projects/p1/docs/yaml")));
+		expectYaml(yaml("*/*"));
+		expectYaml(yaml("text/html,application/xhtml+xml,*/*;q=0.8"));
+		expectYaml(yaml("text/yaml"));
+		expectYaml(yaml("application/json;q=0.5, text/yaml"));
+		expectYaml(yaml("application/json;q=0.5, text/yaml;q=0.5"));
+	}
+
+	@Test
+	void downloadNegotiatesTheSameWay() throws Exception {
+		mvc.perform(get("/api/projects/p1/docs/yaml/download").header(HttpHeaders.ACCEPT, "application/json"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"Shop_advanced.json\""))
+				.andExpect(content().string(JSON));
+	}
+
+	@Test
+	void pdfRangeIsServedFromThePublishedFile() throws Exception {
+		ArtifactFiles.writeString(projectDir.resolve("openapi_advanced.pdf"), "%PDF-1.4 podgląd");
+
+		mvc.perform(get("/api/projects/p1/docs/pdf").header(HttpHeaders.RANGE, "bytes=0-7"))
+				.andExpect(request().asyncStarted())
+				.andDo(result -> mvc.perform(asyncDispatch(result))
+						.andExpect(status().isPartialContent())
+						.andExpect(content().string("%PDF-1.4")));
+		verifyNoInteractions(code2docs);
+	}
+
+	@Test
+	void pdfRangeWithoutPublishedFileIs404() throws Exception {
+		mvc.perform(get("/api/projects/p1/docs/pdf").header(HttpHeaders.RANGE, "bytes=0-7"))
+				.andDo(result -> mvc.perform(asyncDispatch(result)).andExpect(status().isNotFound()));
+		verifyNoInteractions(code2docs);
+	}
+
+	private ResultActions yaml(String accept) throws Exception {
+		return mvc.perform(get("/api/projects/p1/docs/yaml").header(HttpHeaders.ACCEPT, accept));
+	}
+
+	private static void expectJson(ResultActions result) throws Exception {
+		result.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/json"))
+				.andExpect(content().string(JSON));
+	}
+
+	private static void expectYaml(ResultActions result) throws Exception {
+		result.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/yaml"))
+				.andExpect(content().string(YAML));
+	}
+}
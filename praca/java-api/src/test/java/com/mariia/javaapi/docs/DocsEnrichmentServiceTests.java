@@ -0,0 +1,107 @@
+package com.mariia.javaapi.docs;
+
+import com.mariia.javaapi.code.CodeToDocsService;
+import com.mariia.javaapi.code.GenerationOptions;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.GenerationFlights;
+import com.mariia.javaapi.jobs.Priority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DocsEnrichmentServiceTests {
+
+	@TempDir
+	Path base;
+
+	private final CodeToDocsService code2docs = mock(CodeToDocsService.class);
+	private final FairScheduler scheduler = new FairScheduler(1, 1);
+	private final GenerationFlights flights = new GenerationFlights(scheduler);
+	private DocsEnrichmentService enrichment;
+	private Path projectDir;
+	private Path aiYaml;
+
+	@BeforeEach
+	void setUp() {
+		enrichment = new DocsEnrichmentService(code2docs, mock(PdfDocService.class), new SimpleAsyncTaskExecutor(),
+				scheduler, flights);
+		projectDir = base.resolve("p1");
+		aiYaml = projectDir.resolve("openapi_advanced.yaml");
+	}
+
+	@Test
+	void skippedWhileAiGenerationRuns() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		GenerationFlights.Key pdf = new GenerationFlights.Key("p1", "advanced", GenerationFlights.PDF, GenerationFlights.AI);
+		CompletableFuture<Path> request = CompletableFuture.supplyAsync(() -> {
+			try {
+				return flights.run(pdf, GenerationOptions.defaults(), () -> {
+					release.await(5, TimeUnit.SECONDS);
+					return aiYaml;
+				});
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (!flights.isRunning(pdf)) {
+			Thread.sleep(1);
+		}
+
+		assertThat(enrichment.enrichNow(List.of(), "Shop", "advanced", aiYaml, projectDir)).isFalse();
+		assertThat(enrichment.enrichInBackground(List.of(), "Shop", "advanced", aiYaml, projectDir)).isFalse();
+
+		release.countDown();
+		request.get(5, TimeUnit.SECONDS);
+		verifyNoInteractions(code2docs);
+	}
+
+	@Test
+	void requestJoinsRunningEnrichment() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<GenerationOptions> used = new AtomicReference<>();
+		when(code2docs.generateYamlFromCode(any(), anyString(), anyString(), any(), any(), any())).thenAnswer(inv -> {
+			used.set(inv.getArgument(5));
+			release.await(5, TimeUnit.SECONDS);
+			return aiYaml;
+		});
+		GenerationFlights.Key yaml = new GenerationFlights.Key("p1", "advanced", GenerationFlights.YAML, GenerationFlights.AI);
+
+		assertThat(enrichment.enrichInBackground(List.of(), "Shop", "advanced", aiYaml, projectDir)).isTrue();
+		while (used.get() == null) {
+			Thread.sleep(1);
+		}
+		assertThat(used.get().priority).isEqualTo(Priority.BACKGROUND);
+
+		CompletableFuture<Path> request = CompletableFuture.supplyAsync(() -> {
+			try {
+				return flights.joinIfRunning(yaml, null, Priority.INTERACTIVE);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (used.get().priority != Priority.INTERACTIVE) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		assertThat(request.get(5, TimeUnit.SECONDS)).isEqualTo(aiYaml);
+		verify(code2docs, times(1)).generateYamlFromCode(any(), anyString(), anyString(), any(), any(), any());
+	}
+}
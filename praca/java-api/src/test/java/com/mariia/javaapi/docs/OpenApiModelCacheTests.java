@@ -0,0 +1,92 @@
+package com.mariia.javaapi.docs;
+
+import com.mariia.javaapi.uploads.ArtifactFiles;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenApiModelCacheTests {
+
+	private static final String V1 = """
+			openapi: 3.0.1
+			info:
+			  title: Shop
+			  version: "1"
+			paths: {}
+			""";
+	private static final String V2 = V1.replace("version: \"1\"", "version: \"2\"");
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void sameFileVersionIsParsedOnce() throws Exception {
+		OpenApiModelCache cache = new OpenApiModelCache(4);
+		Path yaml = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(yaml, V1);
+
+		OpenAPI first = cache.get(yaml);
+
+		assertThat(cache.get(yaml)).isSameAs(first);
+		assertThat(cache.get(dir.resolve("x/../openapi_advanced.yaml"))).isSameAs(first);
+	}
+
+	@Test
+	void publishedNewContentInvalidatesTheModel() throws Exception {
+		OpenApiModelCache cache = new OpenApiModelCache(4);
+		Path yaml = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(yaml, V1);
+		OpenAPI first = cache.get(yaml);
+
+		ArtifactFiles.writeString(yaml, V2);
+		OpenAPI second = cache.get(yaml);
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getInfo().getVersion()).isEqualTo("2");
+		assertThat(first.getInfo().getVersion()).isEqualTo("1");
+	}
+
+	@Test
+	void republishedSameContentKeepsTheModel() throws Exception {
+		OpenApiModelCache cache = new OpenApiModelCache(4);
+		Path yaml = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(yaml, V1);
+		OpenAPI first = cache.get(yaml);
+
+		// nowy inode i mtime, ale ta sama treść
+		ArtifactFiles.writeString(yaml, V1);
+
+		assertThat(cache.get(yaml)).isSameAs(first);
+	}
+
+	@Test
+	void parseErrorIsNotRemembered() throws Exception {
+		OpenApiModelCache cache = new OpenApiModelCache(4);
+		Path yaml = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(yaml, "to nie jest specyfikacja");
+
+		assertThatThrownBy(() -> cache.get(yaml)).isInstanceOf(IllegalStateException.class);
+
+		ArtifactFiles.writeString(yaml, V1);
+		assertThat(cache.get(yaml).getInfo().getTitle()).isEqualTo("Shop");
+	}
+
+	@Test
+	void leastRecentlyUsedFileIsEvicted() throws Exception {
+		OpenApiModelCache cache = new OpenApiModelCache(1);
+		Path basic = dir.resolve("openapi_basic.yaml");
+		Path advanced = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(basic, V1);
+		ArtifactFiles.writeString(advanced, V2);
+
+		OpenAPI first = cache.get(basic);
+		cache.get(advanced);
+
+		assertThat(cache.get(basic)).isNotSameAs(first);
+	}
+}
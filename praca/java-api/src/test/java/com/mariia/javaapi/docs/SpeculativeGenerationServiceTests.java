@@ -0,0 +1,81 @@
+package com.mariia.javaapi.docs;
+
+import com.mariia.javaapi.code.CodeToDocsService;
+import com.mariia.javaapi.code.GenerationOptions;
+import com.mariia.javaapi.code.ProjectAnalysisCache;
+import com.mariia.javaapi.code.ir.EndpointIR;
+import com.mariia.javaapi.jobs.FairScheduler;
+import com.mariia.javaapi.jobs.GenerationFlights;
+import com.mariia.javaapi.jobs.Priority;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpeculativeGenerationServiceTests {
+
+	@TempDir
+	Path base;
+
+	@Test
+	void generateRequestJoinsSpeculationInsteadOfRunningAgain() throws Exception {
+		Path projectDir = base.resolve("p1");
+		Path aiYaml = projectDir.resolve("openapi_advanced.yaml");
+		ProjectAnalysisCache analysis = mock(ProjectAnalysisCache.class);
+		when(analysis.endpoints(projectDir)).thenReturn(List.of(new EndpointIR()));
+		CodeToDocsService code2docs = mock(CodeToDocsService.class);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<GenerationOptions> used = new AtomicReference<>();
+		when(code2docs.generateYamlFromCode(any(), anyString(), anyString(), any(), any(), any())).thenAnswer(inv -> {
+			used.set(inv.getArgument(5));
+			release.await(5, TimeUnit.SECONDS);
+			return aiYaml;
+		});
+		FairScheduler scheduler = new FairScheduler(1, 1);
+		GenerationFlights flights = new GenerationFlights(scheduler);
+		DocsEnrichmentService enrichment = new DocsEnrichmentService(code2docs, mock(PdfDocService.class),
+				new SyncTaskExecutor(), scheduler, flights);
+		SpeculativeGenerationService speculative = new SpeculativeGenerationService(analysis, enrichment,
+				new SimpleAsyncTaskExecutor(), true, true, "advanced");
+
+		assertThat(speculative.onUpload("p1", projectDir, "Shop")).isTrue();
+		while (used.get() == null) {
+			Thread.sleep(1);
+		}
+		assertThat(used.get().priority).isEqualTo(Priority.BACKGROUND);
+
+		// "generuj" z kontrolera: ten sam klucz, priorytet interaktywny
+		GenerationOptions interactive = GenerationOptions.defaults();
+		interactive.priority = Priority.INTERACTIVE;
+		CompletableFuture<Path> request = CompletableFuture.supplyAsync(() -> {
+			try {
+				return flights.run(new GenerationFlights.Key("p1", "advanced", GenerationFlights.YAML, GenerationFlights.AI),
+						interactive, () -> code2docs.generateYamlFromCode(List.of(), "Shop", "advanced", aiYaml, projectDir, interactive));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (used.get().priority != Priority.INTERACTIVE) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		assertThat(request.get(5, TimeUnit.SECONDS)).isEqualTo(aiYaml);
+		verify(code2docs, times(1)).generateYamlFromCode(any(), anyString(), anyString(), any(), any(), any());
+	}
+}
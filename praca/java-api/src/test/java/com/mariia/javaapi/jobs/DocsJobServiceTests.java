@@ -0,0 +1,93 @@
+package com.mariia.javaapi.jobs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocsJobServiceTests {
+
+	@TempDir
+	Path uploads;
+
+	@Test
+	void lostLeaseInterruptsTheLocalRun() throws Exception {
+		DocsJobService node = service(new SimpleAsyncTaskExecutor());
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean interrupted = new AtomicBoolean();
+		node.setHandler((job, progress) -> {
+			started.countDown();
+			try {
+				new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted.set(true);
+				throw e;
+			}
+			return Map.of();
+		});
+		DocsJob job = node.submit("p1", "yaml", "advanced", "ai", null);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		takeOver(job.id);
+		node.pollCluster();
+
+		awaitFinished(job);
+		assertThat(interrupted).isTrue();
+		assertThat(job.status).isEqualTo("LOST");
+		// status dla klientów pochodzi z dziennika – zadanie trwa na węźle, który je przejął
+		assertThat(node.get("p1", job.id).status).isEqualTo("RUNNING");
+		assertThat(Files.readString(lease(job.id), StandardCharsets.UTF_8)).isEqualTo("node-b");
+	}
+
+	@Test
+	void jobLostWhileQueuedNeverStarts() throws Exception {
+		List<Runnable> queued = new ArrayList<>();
+		DocsJobService node = service(queued::add);
+		AtomicBoolean ran = new AtomicBoolean();
+		node.setHandler((job, progress) -> {
+			ran.set(true);
+			return Map.of();
+		});
+		DocsJob job = node.submit("p1", "yaml", "advanced", "ai", null);
+
+		takeOver(job.id);
+		node.pollCluster();
+		queued.forEach(Runnable::run);
+
+		assertThat(ran).isFalse();
+		assertThat(job.status).isEqualTo("LOST");
+	}
+
+	private DocsJobService service(TaskExecutor executor) {
+		JobJournal journal = new JobJournal(uploads.toString(), "node-a", 30);
+		return new DocsJobService(executor, journal, 60, 1, true, 2, 100, 200);
+	}
+
+	// inny węzeł przejął zadanie (np. po przerwie GC dłuższej niż dzierżawa)
+	private void takeOver(String jobId) throws Exception {
+		Files.writeString(lease(jobId), "node-b", StandardCharsets.UTF_8);
+	}
+
+	private Path lease(String jobId) {
+		return uploads.resolve(".jobs").resolve(jobId + ".lease");
+	}
+
+	private static void awaitFinished(DocsJob job) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!job.isFinished() && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+}
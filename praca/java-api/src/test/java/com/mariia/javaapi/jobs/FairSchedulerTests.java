@@ -0,0 +1,171 @@
+package com.mariia.javaapi.jobs;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.InstanceOfAssertFactories.MAP;
+
+class FairSchedulerTests {
+
+	private final FairScheduler scheduler = new FairScheduler(1, 1);
+	private final FairScheduler.Gate gate = scheduler.nlp();
+	private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+	private final List<Thread> threads = new ArrayList<>();
+
+	@Test
+	void freeSlotIsGrantedImmediately() {
+		try (FairScheduler.Slot slot = gate.acquire("p", Priority.DOWNLOAD, null, null)) {
+			assertThat(slot).isNotNull();
+			assertThat(slot.waitedMs()).isZero();
+			assertThat(slot.position()).isZero();
+		}
+		assertThat(gate.queued()).isZero();
+	}
+
+	@Test
+	void higherPriorityIsServedFirst() throws Exception {
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+		enqueue("a", Priority.BACKGROUND, "background");
+		enqueue("b", Priority.DOWNLOAD, "download");
+		enqueue("c", Priority.INTERACTIVE, "interactive");
+
+		holder.close();
+		joinAll();
+
+		assertThat(order).containsExactly("interactive", "download", "background");
+	}
+
+	@Test
+	void projectsWithinOnePriorityTakeTurns() throws Exception {
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+		enqueue("big", Priority.DOWNLOAD, "big-1");
+		enqueue("big", Priority.DOWNLOAD, "big-2");
+		enqueue("big", Priority.DOWNLOAD, "big-3");
+		enqueue("small", Priority.DOWNLOAD, "small-1");
+
+		holder.close();
+		joinAll();
+
+		assertThat(order).containsExactly("big-1", "small-1", "big-2", "big-3");
+	}
+
+	@Test
+	void queuePositionCountsRoundRobinTurns() throws Exception {
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+		List<Integer> positions = Collections.synchronizedList(new ArrayList<>());
+		enqueue("big", Priority.DOWNLOAD, "big-1", positions);
+		enqueue("big", Priority.DOWNLOAD, "big-2", positions);
+		enqueue("small", Priority.DOWNLOAD, "small-1", positions);
+
+		holder.close();
+		joinAll();
+
+		// small-1 wchodzi przed big-2 (druga runda projektu big)
+		assertThat(positions).containsExactly(1, 2, 2);
+	}
+
+	@Test
+	void promoteMovesWaitingCallsToHigherClass() throws Exception {
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+		enqueue("other", Priority.DOWNLOAD, "other");
+		enqueue("joined", Priority.BACKGROUND, "joined-1");
+		enqueue("joined", Priority.BACKGROUND, "joined-2");
+
+		gate.promote("joined", Priority.BACKGROUND, Priority.INTERACTIVE);
+		holder.close();
+		joinAll();
+
+		assertThat(order).containsExactly("joined-1", "joined-2", "other");
+	}
+
+	@Test
+	void promoteNeverLowersPriority() throws Exception {
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+		enqueue("a", Priority.INTERACTIVE, "a");
+		enqueue("b", Priority.DOWNLOAD, "b");
+
+		gate.promote("a", Priority.INTERACTIVE, Priority.BACKGROUND);
+		holder.close();
+		joinAll();
+
+		assertThat(order).containsExactly("a", "b");
+	}
+
+	@Test
+	void timedOutWaiterLeavesTheQueue() {
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+
+		assertThat(gate.acquire("late", Priority.DOWNLOAD, Duration.ofMillis(20), null)).isNull();
+		assertThat(gate.queued()).isZero();
+		holder.close();
+	}
+
+	@Test
+	void estimatedWaitGrowsWithQueue() throws Exception {
+		assertThat(gate.estimatedWaitMs()).isZero();
+		try (FairScheduler.Slot slot = gate.acquire("p", Priority.DOWNLOAD, null, null)) {
+			Thread.sleep(50);
+		}
+		assertThat(gate.estimatedWaitMs()).isZero();
+
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+		long busy = gate.estimatedWaitMs();
+		assertThat(busy).isGreaterThanOrEqualTo(50);
+		enqueue("q", Priority.DOWNLOAD, "q");
+		assertThat(gate.estimatedWaitMs()).isCloseTo(2 * busy, within(1L));
+
+		holder.close();
+		joinAll();
+	}
+
+	@Test
+	void snapshotShowsProjectTickets() throws Exception {
+		FairScheduler.Slot holder = gate.acquire("holder", Priority.DOWNLOAD, null, null);
+		enqueue("mine", Priority.BACKGROUND, "mine");
+
+		assertThat(scheduler.snapshot("mine"))
+				.extractingByKey("nlp")
+				.asInstanceOf(MAP)
+				.containsEntry("busy", 1)
+				.containsEntry("waiting", 1);
+
+		holder.close();
+		joinAll();
+	}
+
+	private void enqueue(String project, Priority priority, String label) throws InterruptedException {
+		enqueue(project, priority, label, null);
+	}
+
+	// wątek ustawia się w kolejce; czekamy, aż naprawdę w niej stoi, żeby kolejność była deterministyczna
+	private void enqueue(String project, Priority priority, String label, List<Integer> positions) throws InterruptedException {
+		int before = gate.queued();
+		Thread t = new Thread(() -> {
+			try (FairScheduler.Slot slot = gate.acquire(project, priority, Duration.ofSeconds(10), null)) {
+				if (slot != null) {
+					order.add(label);
+					if (positions != null) positions.add(slot.position());
+				}
+			}
+		});
+		t.start();
+		threads.add(t);
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (gate.queued() == before && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertThat(gate.queued()).isEqualTo(before + 1);
+	}
+
+	private void joinAll() throws InterruptedException {
+		for (Thread t : threads) {
+			t.join(10_000);
+		}
+	}
+}
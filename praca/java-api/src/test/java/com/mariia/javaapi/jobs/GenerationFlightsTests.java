@@ -0,0 +1,105 @@
+package com.mariia.javaapi.jobs;
+
+import com.mariia.javaapi.code.GenerationOptions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenerationFlightsTests {
+
+	private static final GenerationFlights.Key YAML_AI =
+			new GenerationFlights.Key("p1", "advanced", GenerationFlights.YAML, GenerationFlights.AI);
+	private static final Path RESULT = Path.of("openapi_advanced.yaml");
+
+	private final GenerationFlights flights = new GenerationFlights(new FairScheduler(1, 1));
+
+	@Test
+	void nothingToJoinWhenIdle() throws Exception {
+		assertThat(flights.isRunning(YAML_AI)).isFalse();
+		assertThat(flights.joinIfRunning(YAML_AI, null, Priority.INTERACTIVE)).isNull();
+	}
+
+	@Test
+	void interactiveRequestTakesOverBackgroundFlight() throws Exception {
+		GenerationOptions background = GenerationOptions.defaults();
+		background.priority = Priority.BACKGROUND;
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		CompletableFuture<Path> leader = CompletableFuture.supplyAsync(() -> call(() -> flights.run(YAML_AI, background, () -> {
+			runs.incrementAndGet();
+			assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+			return RESULT;
+		})));
+		awaitRunning();
+
+		GenerationOptions interactive = GenerationOptions.defaults();
+		interactive.priority = Priority.INTERACTIVE;
+		CompletableFuture<Path> joined = CompletableFuture.supplyAsync(() -> call(() -> flights.run(YAML_AI, interactive, () -> {
+			runs.incrementAndGet();
+			return Path.of("other.yaml");
+		})));
+		while (background.priority != Priority.INTERACTIVE) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		assertThat(joined.get(5, TimeUnit.SECONDS)).isEqualTo(RESULT);
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(RESULT);
+		assertThat(runs).hasValue(1);
+	}
+
+	@Test
+	void joinerReceivesFurtherProgress() throws Exception {
+		GenerationOptions options = GenerationOptions.defaults();
+		options.priority = Priority.BACKGROUND;
+		CountDownLatch joined = new CountDownLatch(1);
+		CompletableFuture<Path> leader = CompletableFuture.supplyAsync(() -> call(() -> flights.run(YAML_AI, options, () -> {
+			options.emit("endpoint", Map.of("n", 1));
+			assertThat(joined.await(5, TimeUnit.SECONDS)).isTrue();
+			options.emit("endpoint", Map.of("n", 2));
+			return RESULT;
+		})));
+		awaitRunning();
+
+		List<Object> seen = Collections.synchronizedList(new ArrayList<>());
+		CompletableFuture<Path> follower = CompletableFuture.supplyAsync(() -> call(() -> flights.joinIfRunning(YAML_AI,
+				(type, data) -> seen.add(data.get("n")), Priority.DOWNLOAD)));
+		while (!options.hasListeners()) {
+			Thread.sleep(1);
+		}
+		joined.countDown();
+
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(RESULT);
+		leader.get(5, TimeUnit.SECONDS);
+		assertThat(seen).containsExactly(2);
+		assertThat(options.priority).isEqualTo(Priority.DOWNLOAD);
+	}
+
+	private void awaitRunning() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!flights.isRunning(YAML_AI) && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertThat(flights.isRunning(YAML_AI)).isTrue();
+	}
+
+	private static <T> T call(SingleFlight.Work<T> work) {
+		try {
+			return work.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.mariia.javaapi.jobs;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTests {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	private final IdempotencyStore store = new IdempotencyStore(3600, 100);
+	private final AtomicInteger runs = new AtomicInteger();
+	private final AtomicInteger renders = new AtomicInteger();
+
+	@Test
+	void withoutKeyEveryCallRuns() {
+		execute(null, "fp", 200).block(TIMEOUT);
+		execute(" ", "fp", 200).block(TIMEOUT);
+
+		assertThat(runs).hasValue(2);
+	}
+
+	@Test
+	void repeatedKeyReplaysRememberedResponse() {
+		ResponseEntity<?> first = execute("k1", "fp", 200).block(TIMEOUT);
+		ResponseEntity<?> replay = execute("k1", "fp", 200).block(TIMEOUT);
+
+		assertThat(runs).hasValue(1);
+		assertThat(first.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+		assertThat(replay.getStatusCode().value()).isEqualTo(200);
+		assertThat(replay.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+		assertThat(replay.getBody()).isEqualTo("rendered result-1");
+		// zapamiętana jest surowa odpowiedź pracy; każde wysłanie składa renderer od nowa
+		assertThat(renders).hasValue(2);
+	}
+
+	@Test
+	void repeatWhileRunningWaitsForTheSameResult() {
+		Mono<ResponseEntity<?>> slow = store.execute("k1", "fp", () -> Mono.delay(Duration.ofMillis(100))
+				.map(x -> ResponseEntity.ok("result-" + runs.incrementAndGet())), stored -> stored);
+		Mono<ResponseEntity<?>> repeat = store.execute("k1", "fp", () -> {
+			runs.incrementAndGet();
+			return Mono.just(ResponseEntity.ok("other"));
+		}, stored -> stored);
+
+		assertThat(repeat.block(TIMEOUT).getBody()).isEqualTo("result-1");
+		assertThat(slow.block(TIMEOUT).getBody()).isEqualTo("result-1");
+		assertThat(runs).hasValue(1);
+	}
+
+	@Test
+	void sameKeyWithDifferentParametersIsRejected() {
+		execute("k1", "yaml|p1|advanced", 200).block(TIMEOUT);
+		ResponseEntity<?> conflict = execute("k1", "yaml|p1|full", 200).block(TIMEOUT);
+
+		assertThat(conflict.getStatusCode().value()).isEqualTo(422);
+		assertThat(new String((byte[]) conflict.getBody(), StandardCharsets.UTF_8)).contains("k1");
+		assertThat(runs).hasValue(1);
+	}
+
+	@Test
+	void serverErrorsAreNotRemembered() {
+		execute("k1", "fp", 503).block(TIMEOUT);
+		ResponseEntity<?> retry = execute("k1", "fp", 200).block(TIMEOUT);
+
+		assertThat(runs).hasValue(2);
+		assertThat(retry.getStatusCode().value()).isEqualTo(200);
+		assertThat(retry.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+	}
+
+	@Test
+	void tooLongKeyIsRejected() {
+		ResponseEntity<?> response = execute("x".repeat(256), "fp", 200).block(TIMEOUT);
+
+		assertThat(response.getStatusCode().value()).isEqualTo(400);
+		assertThat(runs).hasValue(0);
+	}
+
+	private Mono<ResponseEntity<?>> execute(String key, String fingerprint, int status) {
+		return store.execute(key, fingerprint,
+				() -> Mono.just(ResponseEntity.status(status).body("result-" + runs.incrementAndGet())),
+				stored -> {
+					renders.incrementAndGet();
+					return ResponseEntity.status(stored.getStatusCode()).body("rendered " + stored.getBody());
+				});
+	}
+}
@@ -0,0 +1,102 @@
+package com.mariia.javaapi.jobs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobJournalTests {
+
+	@TempDir
+	Path uploads;
+
+	@Test
+	void firstClaimWins() {
+		JobJournal a = journal("node-a");
+		JobJournal b = journal("node-b");
+
+		assertThat(a.claim("job1")).isTrue();
+		assertThat(b.claim("job1")).isFalse();
+		assertThat(a.isOwner("job1")).isTrue();
+		assertThat(b.isOwner("job1")).isFalse();
+	}
+
+	@Test
+	void liveLeaseIsNotTakenOver() throws Exception {
+		JobJournal a = journal("node-a");
+		JobJournal b = journal("node-b");
+		a.claim("job1");
+
+		assertThat(b.claim("job1")).isFalse();
+		assertThat(Files.readString(lease("job1"), StandardCharsets.UTF_8)).isEqualTo("node-a");
+		assertThat(a.renew("job1")).isTrue();
+		try (var files = Files.list(uploads.resolve(".jobs"))) {
+			assertThat(files.map(p -> p.getFileName().toString())).containsExactly("job1.lease");
+		}
+	}
+
+	@Test
+	void staleLeaseIsTakenOverByExactlyOneNode() throws Exception {
+		JobJournal a = journal("node-a");
+		JobJournal b = journal("node-b");
+		JobJournal c = journal("node-c");
+		a.claim("job1");
+		Files.setLastModifiedTime(lease("job1"), FileTime.from(Instant.now().minusSeconds(120)));
+
+		assertThat(a.isAlive("job1")).isFalse();
+		boolean byB = b.claim("job1");
+		boolean byC = c.claim("job1");
+
+		assertThat(byB ^ byC).isTrue();
+		assertThat(a.isOwner("job1")).isFalse();
+		assertThat(a.renew("job1")).isFalse();
+		assertThat(b.isAlive("job1")).isTrue();
+	}
+
+	@Test
+	void releaseOnlyRemovesOwnLease() {
+		JobJournal a = journal("node-a");
+		JobJournal b = journal("node-b");
+		a.claim("job1");
+
+		b.release("job1");
+		assertThat(a.isOwner("job1")).isTrue();
+
+		a.release("job1");
+		assertThat(Files.exists(lease("job1"))).isFalse();
+		assertThat(b.claim("job1")).isTrue();
+	}
+
+	@Test
+	void jobStateRoundTrips() throws Exception {
+		JobJournal a = journal("node-a");
+		DocsJob job = new DocsJob();
+		job.id = "job1";
+		job.projectId = "p1";
+		job.kind = "yaml";
+		job.createdAt = Instant.now();
+
+		a.save(job);
+
+		DocsJob loaded = a.load("job1");
+		assertThat(loaded).isNotNull();
+		assertThat(loaded.projectId).isEqualTo("p1");
+		assertThat(a.list()).extracting(j -> j.id).containsExactly("job1");
+		a.delete("job1");
+		assertThat(a.load("job1")).isNull();
+	}
+
+	private JobJournal journal(String node) {
+		return new JobJournal(uploads.toString(), node, 30);
+	}
+
+	private Path lease(String jobId) {
+		return uploads.resolve(".jobs").resolve(jobId + ".lease");
+	}
+}
@@ -0,0 +1,94 @@
+package com.mariia.javaapi.jobs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+	private final SingleFlight<String, List<String>, String> flight = new SingleFlight<>("TEST");
+
+	@Test
+	void concurrentCallsShareOneComputation() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch joined = new CountDownLatch(1);
+		List<String> context = Collections.synchronizedList(new ArrayList<>());
+
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call(() -> flight.run("k", context, null, () -> {
+			calls.incrementAndGet();
+			// liczymy dopiero, gdy drugi wywołujący dołączył
+			assertThat(joined.await(5, TimeUnit.SECONDS)).isTrue();
+			return "value";
+		})));
+		awaitRunning("k");
+
+		String follower = flight.run("k", List.of("unused"), ctx -> {
+			ctx.add("follower");
+			joined.countDown();
+		}, () -> {
+			calls.incrementAndGet();
+			return "other";
+		});
+
+		assertThat(follower).isEqualTo("value");
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+		assertThat(calls).hasValue(1);
+		assertThat(context).containsExactly("follower");
+	}
+
+	@Test
+	void failureReachesEveryCaller() throws Exception {
+		CountDownLatch joined = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call(() -> flight.run("k", List.of(), null, () -> {
+			joined.await(5, TimeUnit.SECONDS);
+			throw new IllegalStateException("boom");
+		})));
+		awaitRunning("k");
+
+		assertThatThrownBy(() -> flight.joinIfRunning("k", ctx -> joined.countDown()))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("boom");
+		assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("boom");
+	}
+
+	@Test
+	void keyIsReleasedAfterCompletion() throws Exception {
+		assertThat(flight.joinIfRunning("k", ctx -> { })).isNull();
+		assertThat(flight.run("k", () -> "first")).isEqualTo("first");
+
+		assertThat(flight.isRunning("k")).isFalse();
+		assertThat(flight.run("k", () -> "second")).isEqualTo("second");
+	}
+
+	@Test
+	void differentKeysDoNotShare() throws Exception {
+		assertThat(flight.run("a", () -> flight.run("b", () -> "inner") + "-outer")).isEqualTo("inner-outer");
+	}
+
+	private void awaitRunning(String key) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!flight.isRunning(key) && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertThat(flight.isRunning(key)).isTrue();
+	}
+
+	private static String call(SingleFlight.Work<String> work) {
+		try {
+			return work.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
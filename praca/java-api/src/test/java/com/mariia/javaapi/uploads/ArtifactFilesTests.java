@@ -0,0 +1,102 @@
+package com.mariia.javaapi.uploads;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArtifactFilesTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void publishReplacesTheWholeFile() throws Exception {
+		Path target = dir.resolve("openapi_advanced.yaml");
+
+		ArtifactFiles.writeString(target, "v1 – dłuższa treść\n");
+		ArtifactFiles.writeString(target, "v2\n");
+
+		assertThat(Files.readString(target, StandardCharsets.UTF_8)).isEqualTo("v2\n");
+		assertThat(leftovers()).isZero();
+	}
+
+	@Test
+	void openReaderKeepsTheVersionItOpened() throws Exception {
+		Path target = dir.resolve("openapi_advanced.pdf");
+		ArtifactFiles.writeString(target, "stara wersja");
+
+		try (InputStream in = Files.newInputStream(target)) {
+			ArtifactFiles.writeString(target, "nowa wersja");
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("stara wersja");
+		}
+		assertThat(Files.readString(target, StandardCharsets.UTF_8)).isEqualTo("nowa wersja");
+	}
+
+	@Test
+	void failedWriteKeepsThePreviousVersion() throws Exception {
+		Path target = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(target, "v1\n");
+
+		assertThatThrownBy(() -> ArtifactFiles.publish(target, out -> {
+			out.write("v2 – urwane".getBytes(StandardCharsets.UTF_8));
+			throw new IOException("dysk pełny");
+		})).hasMessage("dysk pełny");
+
+		assertThat(Files.readString(target, StandardCharsets.UTF_8)).isEqualTo("v1\n");
+		assertThat(leftovers()).isZero();
+	}
+
+	@Test
+	void stagedContentIsInvisibleUntilPublished() throws Exception {
+		Path target = dir.resolve("openapi_advanced.yaml");
+		ArtifactFiles.writeString(target, "v1\n");
+
+		try (ArtifactFiles.Staged staged = ArtifactFiles.stage(target, out -> out.write("v2\n".getBytes(StandardCharsets.UTF_8)))) {
+			assertThat(Files.readString(target, StandardCharsets.UTF_8)).isEqualTo("v1\n");
+			assertThat(leftovers()).isOne();
+			staged.publish();
+		}
+		assertThat(Files.readString(target, StandardCharsets.UTF_8)).isEqualTo("v2\n");
+
+		try (ArtifactFiles.Staged abandoned = ArtifactFiles.stage(target, out -> out.write("v3\n".getBytes(StandardCharsets.UTF_8)))) {
+			assertThat(abandoned).isNotNull();
+		}
+		assertThat(Files.readString(target, StandardCharsets.UTF_8)).isEqualTo("v2\n");
+		assertThat(leftovers()).isZero();
+	}
+
+	@Test
+	void gzipSiblingHasTheStagedContent() throws Exception {
+		Path target = dir.resolve("openapi_advanced.yaml");
+		String yaml = "openapi: 3.0.1\n".repeat(100);
+
+		try (ArtifactFiles.Staged staged = ArtifactFiles.stage(target, out -> out.write(yaml.getBytes(StandardCharsets.UTF_8)));
+			 ArtifactFiles.Staged gz = staged.gzip()) {
+			staged.publish();
+			gz.publish();
+		}
+
+		Path sibling = ArtifactFiles.gzipSibling(target);
+		assertThat(sibling.getFileName().toString()).isEqualTo("openapi_advanced.yaml.gz");
+		assertThat(Files.size(sibling)).isLessThan(Files.size(target));
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(sibling))) {
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(yaml);
+		}
+		assertThat(leftovers()).isZero();
+	}
+
+	private long leftovers() throws IOException {
+		try (var files = Files.list(dir)) {
+			return files.filter(p -> p.getFileName().toString().endsWith(".tmp")).count();
+		}
+	}
+}
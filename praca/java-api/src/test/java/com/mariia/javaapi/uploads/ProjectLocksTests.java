@@ -0,0 +1,98 @@
+package com.mariia.javaapi.uploads;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProjectLocksTests {
+
+	private static final Path PROJECT = Path.of("/uploads/7ff5507eafee49898c5ba96c4833e2bd");
+
+	private final ProjectLocks locks = new ProjectLocks(8);
+
+	@Test
+	void readersShareTheLock() throws Exception {
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> call(() -> locks.read(PROJECT, () -> {
+			inside.countDown();
+			return release.await(5, TimeUnit.SECONDS);
+		})));
+		assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(locks.read(PROJECT, () -> "second reader")).isEqualTo("second reader");
+
+		release.countDown();
+		reader.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void writerWaitsForReaders() throws Exception {
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean reading = new AtomicBoolean();
+		CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> call(() -> locks.read(PROJECT, () -> {
+			reading.set(true);
+			inside.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			reading.set(false);
+			return null;
+		})));
+		assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<Boolean> writer = CompletableFuture.supplyAsync(() -> call(() -> locks.write(PROJECT, reading::get)));
+		Thread.sleep(50);
+		assertThat(writer).isNotDone();
+
+		release.countDown();
+		assertThat(writer.get(5, TimeUnit.SECONDS)).isFalse();
+		reader.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void sameProjectUnderDifferentPathFormsSharesTheLock() throws Exception {
+		Path other = Path.of("/uploads/x/../7ff5507eafee49898c5ba96c4833e2bd");
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> call(() -> locks.write(PROJECT, () -> {
+			inside.countDown();
+			return release.await(5, TimeUnit.SECONDS);
+		})));
+		assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<String> reader = CompletableFuture.supplyAsync(() -> call(() -> locks.read(other, () -> "read")));
+		Thread.sleep(50);
+		assertThat(reader).isNotDone();
+
+		release.countDown();
+		assertThat(reader.get(5, TimeUnit.SECONDS)).isEqualTo("read");
+		writer.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void failureReleasesTheLock() throws Exception {
+		assertThatThrownBy(() -> locks.write(PROJECT, () -> {
+			throw new IllegalStateException("boom");
+		})).hasMessage("boom");
+
+		CompletableFuture<String> writer = CompletableFuture.supplyAsync(() -> call(() -> locks.write(PROJECT, () -> "free")));
+		assertThat(writer.get(5, TimeUnit.SECONDS)).isEqualTo("free");
+	}
+
+	private static <T> T call(ProjectLocks.Work<T> work) {
+		try {
+			return work.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -4,10 +4,12 @@ import json
 from typing import Any, Dict, List, Optional
 import httpx
 from fastapi import FastAPI, Query, Request, HTTPException
+from fastapi.middleware.gzip import GZipMiddleware
 
 from pydantic import BaseModel, ValidationError
 
 from models import DescribeIn, DescribeOut, ParamIn
+from transport import read_body, respond
 
 
 
@@ -33,6 +35,10 @@ def _build_param_docs(params: List[ParamIn]) -> List[Dict[str, str]]:
     return out
 
 #   PROMPTY (ENDPOINTY)
+# podbić przy każdej zmianie promptów – java-api dolicza ją (z /healthz) do odcisków endpointów,
+# więc opisy wygenerowane starymi promptami nie będą brane z generowania przyrostowego
+PROMPT_VERSION = "1"
+
 def _common_context(payload: DescribeIn) -> str:
     lines: List[str] = []
     lines.append("DANE ENDPOINTU (IR):")
@@ -474,6 +480,9 @@ def _guess_success_status(method: str, returns: Optional[Dict[str, Any]]) -> int
 
 #   FASTAPI
 app = FastAPI(title="NLP Describe Service (Ollama)", version="3.0.0")
+# gzip po Accept-Encoding (java-api prosi o niego tylko przy nlp.compression=true);
+# CBOR (application/cbor) obsługuje sam /describe – patrz transport.py
+app.add_middleware(GZipMiddleware, minimum_size=1024)
 @app.get("/healthz")
 def healthz():
     return {
@@ -490,15 +499,17 @@ def healthz():
                 "num_predict": OLLAMA_NUM_PREDICT,
             },
         },
+        "prompt_version": PROMPT_VERSION,
         "debug": NLP_DEBUG,
     }
 
 @app.post("/describe", response_model=DescribeOut)
 async def describe(
-    payload: DescribeIn,
     request: Request,
     audience: str = Query("beginner", pattern="^(beginner|advanced)$"),
 ):
+    # DescribeIn z JSON albo CBOR (Content-Type), bez przepisywania jednego na drugi
+    payload = await read_body(request, DescribeIn)
     symbol = getattr(payload, "symbol", "?")
     who = request.client.host if request.client else "?"
 
@@ -524,7 +535,7 @@ async def describe(
         doc.paramDocs = _build_param_docs(getattr(payload, "params", []) or [])
         if NLP_DEBUG:
             print(f"[describe] ok symbol={symbol}")
-        return doc
+        return respond(request, doc)
 
     print(f"[describe:error] symbol={symbol} model returned invalid JSON structure")
     raise HTTPException(status_code=502, detail="Model nie zwrócił poprawnego JSON-u")
@@ -0,0 +1,38 @@
+from typing import Type, TypeVar
+
+import cbor2
+from fastapi import HTTPException, Request, Response
+from pydantic import BaseModel, ValidationError
+
+
+#   KOMPAKTOWY TRANSPORT (CBOR)
+# java-api może wysyłać i odbierać application/cbor zamiast JSON-a (nlp.transport=cbor).
+# Endpoint czyta ciało przez read_body i odpowiada przez respond: CBOR dekodujemy prosto
+# do modelu pydantic i kodujemy prosto z modelu – bez pośredniego JSON-a po drodze,
+# więc wywołanie CBOR nie płaci za dwie dodatkowe konwersje.
+CBOR = "application/cbor"
+
+M = TypeVar("M", bound=BaseModel)
+
+
+def _media_type(value: str) -> str:
+    return (value or "").split(";")[0].strip().lower()
+
+
+async def read_body(request: Request, model: Type[M]) -> M:
+    raw = await request.body()
+    try:
+        if _media_type(request.headers.get("content-type", "")) == CBOR:
+            return model.model_validate(cbor2.loads(raw) if raw else {})
+        return model.model_validate_json(raw or b"{}")
+    except ValidationError as e:
+        raise HTTPException(status_code=422, detail=e.errors(include_url=False, include_context=False, include_input=False))
+    except (cbor2.CBORDecodeError, ValueError) as e:
+        raise HTTPException(status_code=400, detail=f"Invalid request body: {e}")
+
+
+def respond(request: Request, doc: BaseModel):
+    """CBOR, gdy klient go akceptuje; inaczej model wraca do FastAPI (response_model -> JSON)."""
+    if CBOR in request.headers.get("accept", "").lower():
+        return Response(content=cbor2.dumps(doc.model_dump(mode="json", by_alias=True)), media_type=CBOR)
+    return doc
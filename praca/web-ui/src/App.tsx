@@ -14,6 +14,16 @@ import EditableDocsPanel from "./EditableDocsPanel";
 import { HowItWorksPanel } from "./components/HowItWorksPanel";
 import { ContactPanel } from "./components/ContactPanel";
 
+// odpowiedź GET /api/projects/{id}/jobs/{jobId}
+type DocsJob = {
+  id: string;
+  status: "QUEUED" | "RUNNING" | "DONE" | "FAILED";
+  message?: string | null;
+  artifacts?: Record<string, string>;
+};
+
+const JOB_POLL_MS = 1500;
+
 const App: React.FC = () => {
   const [showContact, setShowContact] = useState(false);
   const [showHowItWorks, setShowHowItWorks] = useState(false);
@@ -128,6 +138,40 @@ const App: React.FC = () => {
     window.scrollTo({ top: 0, behavior: "smooth" });
   };
 
+  // ==============================
+  //  ZADANIA ASYNCHRONICZNE (polling)
+  // ==============================
+  const waitForJob = async (projectId: string, jobId: string): Promise<DocsJob> => {
+    for (;;) {
+      const res = await fetch(`/api/projects/${projectId}/jobs/${jobId}`);
+      if (!res.ok) {
+        throw new Error(`Status zadania: ${res.status}`);
+      }
+      const job: DocsJob = await res.json();
+      if (job.status === "DONE" || job.status === "FAILED") {
+        return job;
+      }
+      await new Promise((resolve) => setTimeout(resolve, JOB_POLL_MS));
+    }
+  };
+
+  // postęp na żywo (SSE): pasek = opisane endpointy, status = bieżący etap
+  const followJobEvents = (projectId: string, jobId: string): EventSource => {
+    const es = new EventSource(`/api/projects/${projectId}/jobs/${jobId}/events`);
+    es.addEventListener("endpoint", (e) => {
+      const { index, total } = JSON.parse((e as MessageEvent).data);
+      if (progressRef.current) {
+        clearInterval(progressRef.current); // zamiast pseudo-progresu
+        progressRef.current = null;
+      }
+      setProgress(5 + Math.round((85 * index) / total));
+      setStatus(`Opisano endpointy: ${index} z ${total}…`);
+    });
+    es.addEventListener("yaml", () => setStatus("Renderuję PDF…"));
+    es.onerror = () => es.close(); // zostaje polling
+    return es;
+  };
+
   // ==============================
   //  GENEROWANIE PDF PO „TAK”
   // ==============================
@@ -147,21 +191,41 @@ const App: React.FC = () => {
     let ok = false;
 
     try {
-      const url = `/api/projects/${uploadResult.id}/docs/pdf?level=${level}`;
-      const res = await fetch(url, { method: "POST" });
+      // zlecamy zadanie (202 + id) i odpytujemy o status – długie generowanie
+      // nie trzyma otwartego połączenia HTTP
+      const url = `/api/projects/${uploadResult.id}/docs/pdf?level=${level}&async=true`;
+      const submit = await fetch(url, { method: "POST" });
 
-      if (!res.ok) {
-        const text = await res.text().catch(() => "");
+      if (!submit.ok) {
+        const text = await submit.text().catch(() => "");
         console.error(
           "Błąd generowania PDF:",
-          res.status,
-          res.statusText,
+          submit.status,
+          submit.statusText,
           text
         );
         setStatus("Błąd generowania dokumentacji.");
         return;
       }
 
+      const jobId: string = (await submit.json()).id;
+      const events = followJobEvents(uploadResult.id, jobId);
+      const job = await waitForJob(uploadResult.id, jobId).finally(() =>
+        events.close()
+      );
+      if (job.status !== "DONE" || !job.artifacts?.pdf) {
+        console.error("Błąd generowania PDF:", job.message);
+        setStatus("Błąd generowania dokumentacji.");
+        return;
+      }
+
+      const res = await fetch(job.artifacts.pdf);
+      if (!res.ok) {
+        console.error("Błąd pobierania PDF:", res.status, res.statusText);
+        setStatus("Błąd generowania dokumentacji.");
+        return;
+      }
+
       const blob = await res.blob();
 
       if (pdfUrl) {